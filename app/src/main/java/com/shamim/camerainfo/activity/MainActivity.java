@@ -3,9 +3,12 @@ package com.shamim.camerainfo.activity;
 import android.app.Activity;
 import android.content.*;
 import android.content.Context;
+import android.database.Cursor;
 import android.hardware.camera2.*;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.provider.OpenableColumns;
 import android.text.*;
 import android.text.style.BackgroundColorSpan;
 import android.util.*;
@@ -15,17 +18,23 @@ import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.EditText;
 import android.widget.ImageButton;
+import android.widget.PopupMenu;
 import android.widget.TextView;
+import android.widget.Toast;
+import androidx.activity.OnBackPressedCallback;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.core.content.FileProvider;
+import androidx.core.content.IntentCompat;
 import androidx.core.text.PrecomputedTextCompat;
 import androidx.core.view.*;
-import androidx.core.widget.TextViewCompat;
 import androidx.preference.PreferenceManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
 import com.google.android.material.progressindicator.LinearProgressIndicator;
@@ -34,13 +43,26 @@ import com.shamim.camerainfo.c2api_key.*;
 import com.shamim.camerainfo.exception_catcher.*;
 import com.shamim.camerainfo.preference.*;
 import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.report.*;
+import com.shamim.camerainfo.snapshot.*;
 import com.shamim.camerainfo.update_checker.*;
 import com.shamim.camerainfo.util.*;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
 
 public class MainActivity extends BaseActivity {
 
@@ -49,7 +71,8 @@ public class MainActivity extends BaseActivity {
 
   public static MainActivity ActivityContext;
   private final String[] infoOptions = {"Basic info", "All info", "Camcorder profile info"};
-  TextView textView;
+  RecyclerView reportView;
+  ReportAdapter reportAdapter;
   FloatingActionButton shareFab;
   private CircularProgressIndicator progressIndicator;
   CameraManager cameraManager;
@@ -60,28 +83,37 @@ public class MainActivity extends BaseActivity {
   private ImageButton searchPrev;
   private ImageButton searchNext;
   private ImageButton searchClose;
+  private ImageButton searchAllModes;
   private LinearProgressIndicator searchProgressIndicator;
 
-  private SpannableStringBuilder cachedSpannableText = null;
-  private androidx.core.text.PrecomputedTextCompat cachedPrecomputedText = null;
+  // Blocks per section whose layout is precomputed before the section is shown
+  private static final int PRECOMPUTED_BLOCKS_PER_SECTION = 4;
+
+  private volatile int renderGeneration = 0;
   private String cachedPlainText = "";
-  private String cachedLowerPlainText = "";
+  private ReportDocument currentDocument = null;
+  // Document whose line table maps shown offsets to lines
+  private ReportDocument lineDocument = null;
+  private int reportLineHeight = 0;
+  // Matches of the last query, narrowed further when the next query extends it
+  private ReportSearchIndex.Result lastSearchResult = null;
   private String lastSearchQuery = "";
-  private final java.util.concurrent.ThreadPoolExecutor searchExecutor =
-      new java.util.concurrent.ThreadPoolExecutor(
-          2,
-          8,
-          5L,
-          java.util.concurrent.TimeUnit.SECONDS,
-          new java.util.concurrent.LinkedBlockingQueue<Runnable>());
   private java.util.concurrent.Future<?> currentSearchFuture = null;
+  private java.util.concurrent.Future<?> exportFuture = null;
+  private java.util.concurrent.Future<?> currentRenderFuture = null;
   private int searchGeneration = 0;
-  private final java.util.ArrayList<Integer> matchOffsets = new java.util.ArrayList<>();
+  private int[] matchOffsets = new int[0];
+  private int[] matchLengths = new int[0];
+  // Term of each match and matches per term, for "any:" multi-term queries only
+  private int[] matchTerms = null;
+  private int[] matchTermCounts = null;
   private int currentMatchIndex = -1;
   private String currentSearchQuery = "";
   private final android.os.Handler searchHandler =
       new android.os.Handler(android.os.Looper.getMainLooper());
   private Runnable searchRunnable;
+  // Enabled while a single section from a cross-mode search result is shown
+  private OnBackPressedCallback sectionBackCallback;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -129,7 +161,11 @@ public class MainActivity extends BaseActivity {
 
     cameraManager = (CameraManager) getSystemService(Context.CAMERA_SERVICE);
 
-    textView = findViewById(R.id.logView); // আপনার TextView এর আইডি বসান
+    reportView = findViewById(R.id.reportView);
+    reportView.setLayoutManager(new LinearLayoutManager(this));
+    reportAdapter = new ReportAdapter(TaskScheduler.executor(TaskScheduler.Lane.LAYOUT));
+    reportView.setAdapter(reportAdapter);
+    reportLineHeight = ReportAdapter.getLineHeight(reportView);
     progressIndicator = findViewById(R.id.progress_indicator);
     progressIndicator.setIndeterminate(false);
 
@@ -189,6 +225,11 @@ public class MainActivity extends BaseActivity {
             shareTextAsFile();
           }
         });
+    shareFab.setOnLongClickListener(
+        v -> {
+          showExportFormats();
+          return true;
+        });
 
     // Initialize Search UI Components
     searchBar = findViewById(R.id.search_bar);
@@ -233,6 +274,7 @@ public class MainActivity extends BaseActivity {
     searchPrev = findViewById(R.id.search_prev);
     searchNext = findViewById(R.id.search_next);
     searchClose = findViewById(R.id.search_close);
+    searchAllModes = findViewById(R.id.search_all_modes);
     searchProgressIndicator = findViewById(R.id.search_progress_indicator);
 
     searchInput.addTextChangedListener(
@@ -256,8 +298,14 @@ public class MainActivity extends BaseActivity {
               }
               updateSearchHighlights(true);
             } else {
-              searchRunnable = () -> updateSearchHighlights(true);
-              searchHandler.postDelayed(searchRunnable, 1100);
+              // Cheap searches run on every keystroke, slow ones wait for typing to pause
+              long debounce = SearchLatency.getDebounceMillis(cachedPlainText.length());
+              if (debounce == 0) {
+                updateSearchHighlights(true);
+              } else {
+                searchRunnable = () -> updateSearchHighlights(true);
+                searchHandler.postDelayed(searchRunnable, debounce);
+              }
             }
           }
         });
@@ -282,23 +330,122 @@ public class MainActivity extends BaseActivity {
 
     searchPrev.setOnClickListener(
         v -> {
-          if (!matchOffsets.isEmpty()) {
-            currentMatchIndex = (currentMatchIndex - 1 + matchOffsets.size()) % matchOffsets.size();
+          if (matchOffsets.length > 0) {
+            currentMatchIndex = (currentMatchIndex - 1 + matchOffsets.length) % matchOffsets.length;
             updateSearchHighlights(false);
           }
         });
 
     searchNext.setOnClickListener(
         v -> {
-          if (!matchOffsets.isEmpty()) {
-            currentMatchIndex = (currentMatchIndex + 1) % matchOffsets.size();
+          if (matchOffsets.length > 0) {
+            currentMatchIndex = (currentMatchIndex + 1) % matchOffsets.length;
             updateSearchHighlights(false);
           }
         });
 
     searchClose.setOnClickListener(v -> closeSearch());
+    searchAllModes.setOnClickListener(v -> searchAllModes());
+
+    // Back from a single section returns to the full report of the selected mode
+    sectionBackCallback =
+        new OnBackPressedCallback(false) {
+          @Override
+          public void handleOnBackPressed() {
+            setInfoToTextView();
+          }
+        };
+    getOnBackPressedDispatcher().addCallback(this, sectionBackCallback);
+
+    if (!openImport(getIntent())) setInfoToTextView();
+  }
+
+  /**
+   * Shows a report opened from another app (ACTION_VIEW) or shared to this one (ACTION_SEND).
+   * Returns false if the intent carries nothing to import.
+   */
+  private boolean openImport(Intent intent) {
+    if (intent == null) return false;
+    String name;
+    ReportImporter importer;
+    Uri uri = null;
+    if (Intent.ACTION_VIEW.equals(intent.getAction())) {
+      uri = intent.getData();
+    } else if (Intent.ACTION_SEND.equals(intent.getAction())) {
+      uri = IntentCompat.getParcelableExtra(intent, Intent.EXTRA_STREAM, Uri.class);
+    } else {
+      return false;
+    }
+    if (uri != null) {
+      final Uri source = uri;
+      name = getDisplayName(uri);
+      if (name.toLowerCase(Locale.ROOT).endsWith(".cird")) {
+        installReference(uri);
+        return false;
+      }
+      importer = new ReportImporter(() -> getContentResolver().openInputStream(source));
+    } else {
+      CharSequence text = intent.getCharSequenceExtra(Intent.EXTRA_TEXT);
+      if (text == null) return false;
+      final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+      name = "Shared text";
+      importer = new ReportImporter(() -> new ByteArrayInputStream(bytes));
+    }
 
-    setInfoToTextView();
+    final int generation = clearReportView();
+    lineDocument = null;
+    lastSearchQuery = "";
+    progressIndicator.setIndeterminate(false);
+    progressIndicator.setProgress(8, true);
+    progressIndicator.setVisibility(View.VISIBLE);
+    // Back leaves the import for this device's report
+    sectionBackCallback.setEnabled(true);
+    if (getSupportActionBar() != null) {
+      getSupportActionBar().setSubtitle(name);
+    }
+    renderReport(
+        generation,
+        ReportImporter.MODE,
+        importer::generate,
+        document -> SnapshotStore.setImported(name, () -> importer.getSnapshot(document)));
+    return true;
+  }
+
+  private String getDisplayName(Uri uri) {
+    try (Cursor cursor =
+        getContentResolver()
+            .query(uri, new String[] {OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+      if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+        return cursor.getString(0);
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    String segment = uri.getLastPathSegment();
+    return segment != null ? segment : "Imported report";
+  }
+
+  /** Installs a sideloaded reference database for {@link #compareWithReference}. */
+  private void installReference(Uri uri) {
+    final Context appContext = getApplicationContext();
+    TaskScheduler.submit(
+        TaskScheduler.Lane.BACKGROUND,
+        () -> {
+          String message;
+          try (InputStream in = getContentResolver().openInputStream(uri)) {
+            ReferenceDatabase database = SnapshotStore.installReference(appContext, in);
+            message = "Reference database installed, " + database.getDeviceCount() + " devices";
+          } catch (IOException e) {
+            e.printStackTrace();
+            message = "Not a reference database";
+          }
+          final String text = message;
+          runOnUiThread(
+              () -> {
+                if (isFinishing() || isDestroyed()) return;
+                Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
+              });
+        });
   }
 
   // থিম থেকে রঙ আনার জন্য হেল্পার মেথড
@@ -308,116 +455,828 @@ public class MainActivity extends BaseActivity {
     return typedValue.data;
   }
 
+  /**
+   * Exports the current mode's report as text on the background lane and shares it once the file
+   * is complete. A cached report is streamed from its document; otherwise the file is written
+   * section by section while the report is generated.
+   */
   private void shareTextAsFile() {
-    String text = textView.getText().toString();
+    if (exportFuture != null && !exportFuture.isDone()) return;
+
+    final int mode = SharedPrefValues.getValue("pref_log_mode", 0);
+    // cache ডিরেক্টরিতে টেম্প ফাইল বানানো
+    final File file = new File(getCacheDir(), "camera Info.txt");
+    final Context appContext = getApplicationContext();
+    final ReportExporter.ProgressListener progress =
+        percent -> runOnUiThread(() -> progressIndicator.setProgress(percent, true));
+
+    startExport();
+    exportFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.BACKGROUND,
+            () -> {
+              try {
+                ReportDocument document = ReportCache.get(mode);
+                if (document != null) {
+                  ReportExporter.writeText(document, file, progress);
+                } else {
+                  document =
+                      ReportExporter.generateText(
+                          mode,
+                          report ->
+                              CameraInfoHelper.appendReport(
+                                  appContext, cameraManager, mode, report),
+                          file,
+                          progress);
+                  ReportCache.put(document);
+                }
+                runOnUiThread(() -> finishExport(file, "text/plain", "Share text file via"));
+              } catch (IOException e) {
+                e.printStackTrace();
+                runOnUiThread(() -> finishExport(null, null, null));
+              }
+            });
+  }
+
+  /** Lets the user pick an export format, save and compare snapshots or check reference devices. */
+  private void showExportFormats() {
+    PopupMenu popup = new PopupMenu(this, shareFab);
+    popup.getMenu().add(Menu.NONE, 0, 0, "Share as text file");
+    popup.getMenu().add(Menu.NONE, 1, 1, "Share as ZIP (one file per camera)");
+    popup.getMenu().add(Menu.NONE, 2, 2, "Share as binary snapshot");
+    popup.getMenu().add(Menu.NONE, 3, 3, "Share as JSON");
+    popup.getMenu().add(Menu.NONE, 4, 4, "Share all modes as ZIP");
+    popup.getMenu().add(Menu.NONE, 5, 5, "Save snapshot to history");
+    popup.getMenu().add(Menu.NONE, 6, 6, "Compare snapshots");
+    popup.getMenu().add(Menu.NONE, 7, 7, "Compare with reference devices");
+    popup.setOnMenuItemClickListener(
+        item -> {
+          if (item.getItemId() == 0) {
+            shareTextAsFile();
+          } else if (item.getItemId() == 1) {
+            shareZipFile();
+          } else if (item.getItemId() == 2) {
+            shareSnapshotFile();
+          } else if (item.getItemId() == 3) {
+            shareJsonFile();
+          } else if (item.getItemId() == 4) {
+            shareAllModes();
+          } else if (item.getItemId() == 5) {
+            saveToHistory();
+          } else if (item.getItemId() == 6) {
+            compareSnapshots();
+          } else {
+            compareWithReference();
+          }
+          return true;
+        });
+    popup.show();
+  }
+
+  /**
+   * Exports the current mode's report as a ZIP with device info, one entry per camera, the
+   * camcorder matrix unless the mode already lists the camcorder profiles, and a manifest. The
+   * compression level comes from the settings.
+   */
+  private void shareZipFile() {
+    if (exportFuture != null && !exportFuture.isDone()) return;
+
+    final int mode = SharedPrefValues.getValue("pref_log_mode", 0);
+    final int level = SharedPrefValues.getValue("pref_zip_compression_level", 6);
+    final File file = new File(getCacheDir(), "camera Info.zip");
+    final Context appContext = getApplicationContext();
+    final Map<String, String> manifest = new LinkedHashMap<>();
+    manifest.put("mode", infoOptions[mode]);
+    manifest.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+    manifest.put("android", Build.VERSION.RELEASE + " (SDK " + Build.VERSION.SDK_INT + ")");
+    manifest.put("created", Instant.now().toString());
+    final ReportExporter.ProgressListener progress =
+        percent -> runOnUiThread(() -> progressIndicator.setProgress(percent, true));
+
+    startExport();
+    exportFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.BACKGROUND,
+            () -> {
+              ReportDocument document = ReportCache.get(mode);
+              // One scan serves both the report and the camcorder matrix, when either needs it
+              CameraScan scan = null;
+              if (document == null || mode != 2) {
+                try {
+                  scan = CameraScan.run(cameraManager);
+                } catch (Exception e) {
+                  // The report then shows the error; there is no matrix to add
+                  e.printStackTrace();
+                }
+              }
+              final CameraScan reportScan = scan;
+              final ReportExporter.Generator camcorder =
+                  scan == null || mode == 2
+                      ? null
+                      : report ->
+                          CameraInfoHelper.appendCamcorderMatrix(
+                              reportScan, report, ReportExporter.CAMCORDER_LABEL);
+              try {
+                if (document != null) {
+                  ReportExporter.writeZip(document, camcorder, file, level, manifest, progress);
+                } else {
+                  ReportExporter.generateZip(
+                      report -> {
+                        if (reportScan != null) {
+                          CameraInfoHelper.appendReport(appContext, reportScan, mode, report);
+                        } else {
+                          CameraInfoHelper.appendReport(appContext, cameraManager, mode, report);
+                        }
+                      },
+                      camcorder,
+                      file,
+                      level,
+                      manifest,
+                      progress);
+                }
+                runOnUiThread(() -> finishExport(file, "application/zip", "Share ZIP file via"));
+              } catch (IOException e) {
+                e.printStackTrace();
+                runOnUiThread(() -> finishExport(null, null, null));
+              }
+            });
+  }
+
+  /**
+   * Exports the reports of all modes as one ZIP. Cached modes are reused; the others are generated
+   * side by side from a single camera scan.
+   */
+  private void shareAllModes() {
+    if (exportFuture != null && !exportFuture.isDone()) return;
+
+    final int level = SharedPrefValues.getValue("pref_zip_compression_level", 6);
+    final File file = new File(getCacheDir(), "camera Info (all modes).zip");
+    final Context appContext = getApplicationContext();
+    final List<String> labels = Arrays.asList(infoOptions);
+    final Map<String, String> manifest = new LinkedHashMap<>();
+    manifest.put("mode", String.join(", ", infoOptions));
+    manifest.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+    manifest.put("android", Build.VERSION.RELEASE + " (SDK " + Build.VERSION.SDK_INT + ")");
+    manifest.put("created", Instant.now().toString());
+    final ReportExporter.ProgressListener progress =
+        percent ->
+            runOnUiThread(
+                () -> {
+                  progressIndicator.setIndeterminate(false);
+                  progressIndicator.setProgress(percent, true);
+                });
+
+    startExport();
+    progressIndicator.setIndeterminate(true);
+    exportFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.BACKGROUND,
+            () -> {
+              try {
+                List<ReportDocument> documents = getAllModes(appContext);
+                ReportExporter.writeBundle(documents, labels, file, level, manifest, progress);
+                runOnUiThread(() -> finishExport(file, "application/zip", "Share ZIP file via"));
+              } catch (IOException e) {
+                e.printStackTrace();
+                runOnUiThread(() -> finishExport(null, null, null));
+              } catch (InterruptedException e) {
+                runOnUiThread(() -> finishExport(null, null, null));
+              }
+            });
+  }
 
-    try {
-      // cache ডিরেক্টরিতে টেম্প ফাইল বানানো
-      File file = new File(getCacheDir(), "camera Info.txt");
-      FileOutputStream fos = new FileOutputStream(file);
-      fos.write(text.getBytes());
-      fos.close();
+  /** Exports the camera model as a compact binary snapshot for tooling. */
+  private void shareSnapshotFile() {
+    if (exportFuture != null && !exportFuture.isDone()) return;
 
-      // FileProvider দিয়ে Uri তৈরি
-      Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", file);
+    final File file = SnapshotStore.getSnapshotFile(this);
+    startExport();
+    progressIndicator.setIndeterminate(true);
+    exportFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.BACKGROUND,
+            () -> {
+              try {
+                ReportExporter.writeSnapshot(SnapshotExtractor.extract(cameraManager), file);
+                runOnUiThread(
+                    () ->
+                        finishExport(file, "application/octet-stream", "Share snapshot via"));
+              } catch (IOException e) {
+                e.printStackTrace();
+                runOnUiThread(() -> finishExport(null, null, null));
+              }
+            });
+  }
 
-      // শেয়ার করার Intent
-      Intent intent = new Intent(Intent.ACTION_SEND);
-      intent.setType("text/plain");
+  /**
+   * Exports the camera model as JSON. It is streamed from the cached snapshot, so the camera
+   * service is only queried when no snapshot of this build was written since the last reset.
+   */
+  private void shareJsonFile() {
+    if (exportFuture != null && !exportFuture.isDone()) return;
+
+    final Context appContext = getApplicationContext();
+    final File file = new File(getCacheDir(), "camera Info.json");
+    startExport();
+    progressIndicator.setIndeterminate(true);
+    exportFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.BACKGROUND,
+            () -> {
+              try {
+                File snapshotFile = SnapshotStore.ensureSnapshotFile(appContext, cameraManager);
+                ReportExporter.writeJson(snapshotFile, file);
+                runOnUiThread(() -> finishExport(file, "application/json", "Share JSON via"));
+              } catch (IOException e) {
+                e.printStackTrace();
+                runOnUiThread(() -> finishExport(null, null, null));
+              }
+            });
+  }
+
+  /**
+   * Adds the current snapshot to the on-device history, labeled with the build so captures can be
+   * told apart across OTAs. Cameras that did not change since an earlier capture cost no space.
+   */
+  private void saveToHistory() {
+    if (exportFuture != null && !exportFuture.isDone()) return;
+
+    final Context appContext = getApplicationContext();
+    startExport();
+    progressIndicator.setIndeterminate(true);
+    exportFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.BACKGROUND,
+            () -> {
+              String message;
+              try {
+                SnapshotHistory.AddResult result =
+                    SnapshotStore.saveToHistory(appContext, cameraManager, Build.DISPLAY);
+                message =
+                    "Saved to history, "
+                        + result.newObjects
+                        + " of "
+                        + result.totalObjects
+                        + " parts were new";
+              } catch (IOException e) {
+                e.printStackTrace();
+                message = "Saving to history failed";
+              }
+              final String text = message;
+              runOnUiThread(
+                  () -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    shareFab.setEnabled(true);
+                    progressIndicator.setVisibility(View.GONE);
+                    Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
+                  });
+            });
+  }
 
-      // ফাইল অ্যাটাচ করা
-      intent.putExtra(Intent.EXTRA_STREAM, uri);
+  /**
+   * Lets the user pick two snapshots, the current device, the last imported report or any history
+   * entry, and shows their structural diff in the report view.
+   */
+  private void compareSnapshots() {
+    final Context appContext = getApplicationContext();
+    TaskScheduler.submit(
+        TaskScheduler.Lane.BACKGROUND,
+        () -> {
+          List<String> labels = new ArrayList<>();
+          List<SnapshotStore.Loader> sources = new ArrayList<>();
+          labels.add("Current device");
+          sources.add(
+              () ->
+                  SnapshotStore.readSnapshot(
+                      SnapshotStore.ensureSnapshotFile(appContext, cameraManager)));
+          SnapshotStore.ImportedSnapshot imported = SnapshotStore.getImported();
+          if (imported != null) {
+            labels.add("Imported · " + imported.name);
+            sources.add(imported.loader);
+          }
+          try {
+            SnapshotHistory history = SnapshotStore.getHistory(appContext);
+            List<SnapshotHistory.Entry> entries = history.list();
+            // Newest first
+            for (int i = entries.size() - 1; i >= 0; i--) {
+              SnapshotHistory.Entry entry = entries.get(i);
+              labels.add(SnapshotStore.describe(entry));
+              sources.add(() -> history.load(entry));
+            }
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+          runOnUiThread(
+              () -> {
+                if (isFinishing() || isDestroyed()) return;
+                String[] items = labels.toArray(new String[0]);
+                pickSnapshot(
+                    "Compare from",
+                    items,
+                    before ->
+                        pickSnapshot(
+                            "Compare to",
+                            items,
+                            after ->
+                                showDiff(
+                                    items[before],
+                                    sources.get(before),
+                                    items[after],
+                                    sources.get(after))));
+              });
+        });
+  }
 
-      // মেসেজ যুক্ত করা
-      intent.putExtra(Intent.EXTRA_TEXT, DeviceInfo.getShortDeviceInfoMassage());
+  private interface SnapshotPicked {
+    void onPicked(int which);
+  }
 
-      intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+  private void pickSnapshot(String title, String[] items, SnapshotPicked picked) {
+    new MaterialAlertDialogBuilder(this)
+        .setCustomTitle(DialogUtils.createStyledDialogTitle(this, title))
+        .setItems(items, (dialog, which) -> picked.onPicked(which))
+        .setNegativeButton("Cancel", null)
+        .show();
+  }
 
-      startActivity(Intent.createChooser(intent, "Share text file via"));
+  /**
+   * Compares this device's camera layout with the reference database: known devices of the same
+   * model and build, and the devices with the closest layouts.
+   */
+  private void compareWithReference() {
+    final Context appContext = getApplicationContext();
+    showDocument(
+        "Reference devices",
+        "No reference database, open a .cird file with the app to install one",
+        () -> {
+          ReferenceDatabase database = SnapshotStore.openReference(appContext);
+          if (database == null) throw new FileNotFoundException("No reference database");
+          Snapshot current =
+              SnapshotStore.readSnapshot(
+                  SnapshotStore.ensureSnapshotFile(appContext, cameraManager));
+          return ReferenceReport.build(database, current);
+        });
+  }
 
-    } catch (IOException e) {
-      e.printStackTrace();
+  /** Loads both snapshots, diffs them and shows the result until back is pressed. */
+  private void showDiff(
+      String beforeLabel,
+      SnapshotStore.Loader before,
+      String afterLabel,
+      SnapshotStore.Loader after) {
+    showDocument(
+        beforeLabel + " vs " + afterLabel,
+        "Comparison failed",
+        () ->
+            DiffReport.build(
+                SnapshotDiff.compute(before.load(), after.load()), beforeLabel, afterLabel));
+  }
+
+  /** Builds a document off the main thread. */
+  private interface DocumentLoader {
+    ReportDocument load() throws IOException;
+  }
+
+  /** Builds a document on the render lane and shows it until back is pressed. */
+  private void showDocument(String subtitle, String failure, DocumentLoader loader) {
+    final int generation = clearReportView();
+    progressIndicator.setIndeterminate(true);
+    progressIndicator.setVisibility(View.VISIBLE);
+    sectionBackCallback.setEnabled(true);
+    if (getSupportActionBar() != null) {
+      getSupportActionBar().setSubtitle(subtitle);
     }
+
+    currentRenderFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.RENDER,
+            () -> {
+              ReportDocument document;
+              try {
+                document = loader.load();
+              } catch (IOException e) {
+                e.printStackTrace();
+                runOnUiThread(
+                    () -> {
+                      if (generation != renderGeneration) return;
+                      progressIndicator.setVisibility(View.GONE);
+                      Toast.makeText(this, failure, Toast.LENGTH_SHORT).show();
+                    });
+                return;
+              }
+              int count = document.getSectionCount();
+              CharSequence[] sections = new CharSequence[count];
+              int[][] blockStarts = new int[count][];
+              for (int i = 0; i < count; i++) {
+                if (generation != renderGeneration) return;
+                sections[i] = ColoredTextHelper.colorSection(document.getSection(i));
+                blockStarts[i] = ReportAdapter.computeBlockStarts(sections[i]);
+              }
+              document.setRendered(sections, blockStarts);
+              runOnUiThread(
+                  () -> {
+                    progressIndicator.setIndeterminate(false);
+                    bindDocument(generation, document);
+                  });
+            });
+  }
+
+  private void startExport() {
+    shareFab.setEnabled(false);
+    progressIndicator.setIndeterminate(false);
+    progressIndicator.setProgress(0, false);
+    progressIndicator.setVisibility(View.VISIBLE);
+  }
+
+  /** Hides the export progress and shares the file, unless the export failed. */
+  private void finishExport(File file, String mimeType, String chooserTitle) {
+    if (isFinishing() || isDestroyed()) return;
+    shareFab.setEnabled(true);
+    progressIndicator.setVisibility(View.GONE);
+    if (file == null) {
+      Toast.makeText(this, "Export failed", Toast.LENGTH_SHORT).show();
+      return;
+    }
+
+    // FileProvider দিয়ে Uri তৈরি
+    Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", file);
+
+    // শেয়ার করার Intent
+    Intent intent = new Intent(Intent.ACTION_SEND);
+    intent.setType(mimeType);
+
+    // ফাইল অ্যাটাচ করা
+    intent.putExtra(Intent.EXTRA_STREAM, uri);
+
+    // মেসেজ যুক্ত করা
+    intent.putExtra(Intent.EXTRA_TEXT, DeviceInfo.getShortDeviceInfoMassage());
+
+    intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+
+    startActivity(Intent.createChooser(intent, chooserTitle));
+  }
+
+  /**
+   * Points the report palette at this theme's colors. Report text only refers to palette roles,
+   * so shown blocks are redrawn but keep their text and layout.
+   */
+  private void applyReportPalette() {
+    boolean changed =
+        ReportPalette.setColors(
+            getColorFromAttr(this, androidx.appcompat.R.attr.colorPrimary),
+            getColorFromAttr(this, com.google.android.material.R.attr.colorTertiary),
+            getColorFromAttr(this, com.google.android.material.R.attr.colorSecondary));
+    if (changed) reportAdapter.notifyPaletteChanged();
   }
 
   public void setInfoToTextView() {
-    cachedSpannableText = null;
-    cachedPrecomputedText = null;
+    final int generation = ++renderGeneration;
+    sectionBackCallback.setEnabled(false);
+    if (getSupportActionBar() != null) {
+      getSupportActionBar().setSubtitle(null);
+    }
     cachedPlainText = "";
-    cachedLowerPlainText = "";
+    currentDocument = null;
+    lineDocument = null;
+    lastSearchResult = null;
     lastSearchQuery = "";
+    matchOffsets = new int[0];
+    matchLengths = new int[0];
+    matchTerms = null;
+    matchTermCounts = null;
     // 1. Show the indicator immediately
     if (progressIndicator != null) {
       progressIndicator.setIndeterminate(false);
       progressIndicator.setVisibility(View.VISIBLE);
       progressIndicator.setProgress(8, true);
     }
-    textView.setText("");
+    reportAdapter.clear();
+    TaskScheduler.cancel(currentRenderFuture);
 
-    ExecutorService executor = Executors.newSingleThreadExecutor();
-    executor.execute(
-        () -> {
-          progressIndicator.setProgress(15, true);
-          // Prepare text in background
-          String deviceInfo = DeviceInfo.getDeviceInfoText(this);
-          String cameraInformation = CameraInfoHelper.getAllCameraInfo(cameraManager);
+    int mode = SharedPrefValues.getValue("pref_log_mode", 0);
 
-          progressIndicator.setProgress(20, true);
+    // A report generated earlier in this process is shown again instead of regenerated
+    ReportDocument cached = ReportCache.get(mode);
+    if (cached != null) {
+      showCachedReport(generation, cached);
+      return;
+    }
 
-          StringBuilder combinedInfo = new StringBuilder();
-          combinedInfo.append(deviceInfo);
-          if (!deviceInfo.isEmpty() && !cameraInformation.isEmpty()) {
-            combinedInfo.append("\n");
-          }
-          combinedInfo.append(cameraInformation);
+    // 2. Device info first, then the camera list and one section per camera
+    renderReport(
+        generation,
+        mode,
+        report -> CameraInfoHelper.appendReport(this, cameraManager, mode, report),
+        null);
+  }
 
-          progressIndicator.setProgress(30, true);
+  private interface ReportListener {
+    void onReport(ReportDocument document);
+  }
 
-          String plainText = combinedInfo.toString();
-          String lowerPlainText = plainText.toLowerCase(java.util.Locale.US);
+  /**
+   * Runs a generator on the render lane and shows every section as soon as it is complete. Reports
+   * of the log modes are cached; listener, if set, gets the finished document on the render lane.
+   */
+  private void renderReport(
+      int generation, int mode, ReportExporter.Generator generator, ReportListener listener) {
+    PrecomputedTextCompat.Params params = ReportAdapter.getTextMetricsParams(reportView);
+
+    // Colored sections are kept so the finished report can be cached as shown
+    List<CharSequence> renderedSections = new ArrayList<>();
+    List<int[]> renderedBlocks = new ArrayList<>();
+
+    // Sections are colored and laid out in order on the render lane while the next one is
+    // generated
+    Executor renderer = TaskScheduler.serial(TaskScheduler.Lane.RENDER);
+    currentRenderFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.RENDER,
+            () -> {
+              ReportBuilder report = new ReportBuilder();
+              report.setSectionListener(
+                  (section, expectedSections) -> {
+                    // Stop generating once a newer render has started
+                    if (generation != renderGeneration) throw new CancellationException();
+                    renderer.execute(
+                        () ->
+                            publishSection(
+                                generation,
+                                section,
+                                expectedSections,
+                                params,
+                                renderedSections,
+                                renderedBlocks));
+                  });
 
-          int keyColor = getColorFromAttr(this, androidx.appcompat.R.attr.colorPrimary);
-          int separatorColor =
-              getColorFromAttr(this, com.google.android.material.R.attr.colorTertiary);
-          int valueColor =
-              getColorFromAttr(this, com.google.android.material.R.attr.colorSecondary);
+              try {
+                generator.generate(report);
+              } catch (UncheckedIOException e) {
+                e.printStackTrace();
+                runOnUiThread(
+                    () -> {
+                      if (generation != renderGeneration) return;
+                      progressIndicator.setVisibility(View.GONE);
+                      Toast.makeText(this, "Cannot open the report", Toast.LENGTH_SHORT).show();
+                    });
+                return;
+              }
 
-          SpannableStringBuilder spannableText =
-              ColoredTextHelper.setColoredText(plainText, keyColor, separatorColor, valueColor);
+              ReportDocument document = report.toDocument(mode);
 
-          progressIndicator.setProgress(45, true);
+              // 3. Runs after every section has been published
+              renderer.execute(
+                  () -> {
+                    if (renderedSections.size() == document.getSectionCount()) {
+                      document.setRendered(
+                          renderedSections.toArray(new CharSequence[0]),
+                          renderedBlocks.toArray(new int[0][]));
+                    }
+                    if (mode >= 0) ReportCache.put(document);
+                    if (listener != null) listener.onReport(document);
+                    runOnUiThread(() -> onReportReady(generation, document));
 
-          // 3. Prepare text layout off the main thread (async + safe)
-          PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(textView);
-          PrecomputedTextCompat precomputedText =
-              PrecomputedTextCompat.create(spannableText, params);
+                    // Ready before the first search is typed
+                    TaskScheduler.submit(TaskScheduler.Lane.BACKGROUND, document::getSearchIndex);
+                    TaskScheduler.submit(TaskScheduler.Lane.BACKGROUND, document::getFieldIndex);
+                  });
+            });
+  }
 
-          // 4. Update UI once text layout is ready
-          runOnUiThread(
-              () -> {
-                progressIndicator.setProgress(80, true);
+  /**
+   * Binds a cached report. Its sections are colored from the field offsets only if it was never
+   * shown, for example when it was generated for a search across all modes.
+   */
+  private void showCachedReport(int generation, ReportDocument document) {
+    if (document.isRendered()) {
+      bindDocument(generation, document);
+      return;
+    }
 
-                // Ensure matching parameters (avoids IllegalArgumentException)
-                TextViewCompat.setTextMetricsParams(textView, precomputedText.getParams());
-                TextViewCompat.setPrecomputedText(textView, precomputedText);
+    currentRenderFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.RENDER,
+            () -> {
+              int count = document.getSectionCount();
+              CharSequence[] sections = new CharSequence[count];
+              int[][] blockStarts = new int[count][];
+              for (int i = 0; i < count; i++) {
+                if (generation != renderGeneration) return;
+                sections[i] = ColoredTextHelper.colorSection(document.getSection(i));
+                blockStarts[i] = ReportAdapter.computeBlockStarts(sections[i]);
+              }
+              document.setRendered(sections, blockStarts);
+              runOnUiThread(() -> bindDocument(generation, document));
+            });
+  }
 
-                cachedSpannableText = spannableText;
-                cachedPrecomputedText = precomputedText;
-                cachedPlainText = plainText;
-                cachedLowerPlainText = lowerPlainText;
+  private void bindDocument(int generation, ReportDocument document) {
+    if (generation != renderGeneration) return;
+    for (int i = 0; i < document.getSectionCount(); i++) {
+      reportAdapter.appendSection(
+          document.getRenderedSection(i), document.getRenderedBlockStarts(i), null);
+    }
+    onReportReady(generation, document);
+  }
 
-                if (!currentSearchQuery.isEmpty()) {
-                  updateSearchHighlights(true);
-                }
+  private void onReportReady(int generation, ReportDocument document) {
+    if (generation != renderGeneration) return;
 
-                progressIndicator.setProgress(100, true);
-                textView.postDelayed(() -> progressIndicator.setVisibility(View.GONE), 300);
-              });
+    cachedPlainText = document.text;
+    currentDocument = document;
+    lineDocument = document;
+
+    if (!currentSearchQuery.isEmpty()) {
+      updateSearchHighlights(true);
+    }
+
+    progressIndicator.setProgress(100, true);
+    reportView.postDelayed(() -> progressIndicator.setVisibility(View.GONE), 300);
+    TaskScheduler.logMetrics();
+    SearchLatency.logMetrics();
+  }
+
+  private void publishSection(
+      int generation,
+      ReportSection section,
+      int expectedSections,
+      PrecomputedTextCompat.Params params,
+      List<CharSequence> renderedSections,
+      List<int[]> renderedBlocks) {
+    if (generation != renderGeneration) return;
+
+    SpannableStringBuilder text = ColoredTextHelper.colorSection(section);
+    int[] blockStarts = ReportAdapter.computeBlockStarts(text);
+    renderedSections.add(text);
+    renderedBlocks.add(blockStarts);
+    PrecomputedTextCompat[] precomputed =
+        ReportAdapter.precomputeBlocks(text, blockStarts, PRECOMPUTED_BLOCKS_PER_SECTION, params);
+
+    runOnUiThread(
+        () -> {
+          if (generation != renderGeneration) return;
+          reportAdapter.appendSection(text, blockStarts, precomputed);
 
-          executor.shutdown();
+          // Progress follows the sections shown so far once the camera count is known
+          if (expectedSections > 0) {
+            int progress = Math.min(99, 100 * (section.index + 1) / expectedSections);
+            progressIndicator.setProgress(Math.max(progress, 8), true);
+          }
         });
   }
 
+  /**
+   * The documents of every mode, from the cache where possible. The missing modes are generated
+   * together from one camera scan on the background lane and cached. Call off the main thread.
+   */
+  private List<ReportDocument> getAllModes(Context appContext) throws InterruptedException {
+    List<ReportDocument> documents = new ArrayList<>();
+    List<Integer> missing = new ArrayList<>();
+    for (int mode = 0; mode < infoOptions.length; mode++) {
+      ReportDocument document = ReportCache.get(mode);
+      documents.add(document);
+      if (document == null) missing.add(mode);
+    }
+    if (!missing.isEmpty()) {
+      int[] modes = new int[missing.size()];
+      for (int i = 0; i < modes.length; i++) modes[i] = missing.get(i);
+      ReportDocument[] generated =
+          CameraInfoHelper.generateReports(
+              appContext,
+              cameraManager,
+              modes,
+              TaskScheduler.executor(TaskScheduler.Lane.BACKGROUND));
+      for (ReportDocument document : generated) {
+        ReportCache.put(document);
+        documents.set(document.mode, document);
+      }
+    }
+    return documents;
+  }
+
+  /**
+   * Searches the reports of all three modes for the current query. Modes that were never opened
+   * are generated from one camera scan on the background lane, as plain text with their indexes
+   * only; they are colored when opened.
+   */
+  private void searchAllModes() {
+    final String query = currentSearchQuery.trim();
+    if (query.isEmpty()) return;
+    if (searchProgressIndicator != null) {
+      searchProgressIndicator.setVisibility(View.VISIBLE);
+    }
+
+    TaskScheduler.cancel(currentSearchFuture);
+    final int generation = ++searchGeneration;
+    final Context appContext = getApplicationContext();
+    currentSearchFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.BACKGROUND,
+            () -> {
+              List<ReportDocument> documents;
+              try {
+                documents = getAllModes(appContext);
+              } catch (InterruptedException e) {
+                // A newer search cancelled this one
+                return;
+              }
+              if (generation != searchGeneration) return;
+              List<CrossModeSearch.Group> groups = CrossModeSearch.search(documents, query);
+
+              searchHandler.post(
+                  () -> {
+                    if (generation != searchGeneration) return;
+                    if (searchProgressIndicator != null) {
+                      searchProgressIndicator.setVisibility(View.GONE);
+                    }
+                    showCrossModeResults(query, groups);
+                  });
+            });
+  }
+
+  private void showCrossModeResults(String query, List<CrossModeSearch.Group> groups) {
+    MaterialAlertDialogBuilder builder =
+        new MaterialAlertDialogBuilder(this)
+            .setCustomTitle(
+                DialogUtils.createStyledDialogTitle(this, "\"" + query + "\" in all modes"))
+            .setNegativeButton("Close", null);
+
+    if (groups.isEmpty()) {
+      builder.setMessage("No matches");
+    } else {
+      String[] items = new String[groups.size()];
+      for (int i = 0; i < items.length; i++) {
+        CrossModeSearch.Group group = groups.get(i);
+        items[i] =
+            group.label + " · " + infoOptions[group.mode] + " (" + group.starts.length + ")";
+      }
+      builder.setItems(items, (dialog, which) -> showSection(groups.get(which)));
+    }
+    builder.show();
+  }
+
+  /** Cancels any render and empties the report view. Returns the new render generation. */
+  private int clearReportView() {
+    int generation = ++renderGeneration;
+    TaskScheduler.cancel(currentRenderFuture);
+    reportAdapter.clear();
+    cachedPlainText = "";
+    currentDocument = null;
+    lastSearchResult = null;
+    matchOffsets = new int[0];
+    matchLengths = new int[0];
+    matchTerms = null;
+    matchTermCounts = null;
+    return generation;
+  }
+
+  /** Shows only the section a cross-mode result belongs to, with its matches highlighted. */
+  private void showSection(CrossModeSearch.Group group) {
+    ReportDocument document = ReportCache.get(group.mode);
+    if (document == null) return;
+
+    final int generation = clearReportView();
+
+    currentRenderFuture =
+        TaskScheduler.submit(
+            TaskScheduler.Lane.RENDER,
+            () -> {
+              ReportSection section = document.getSection(group.section);
+              // The section alone is what the search bar searches while it is shown
+              ReportDocument sectionDocument = document.getSectionDocument(group.section);
+              SpannableStringBuilder text = ColoredTextHelper.colorSection(section);
+              int[] blockStarts = ReportAdapter.computeBlockStarts(text);
+              int[] starts = new int[group.starts.length];
+              for (int i = 0; i < starts.length; i++) {
+                starts[i] = group.starts[i] - section.start;
+              }
+
+              runOnUiThread(
+                  () -> {
+                    if (generation != renderGeneration) return;
+                    reportAdapter.appendSection(text, blockStarts, null);
+                    cachedPlainText = sectionDocument.text;
+                    currentDocument = sectionDocument;
+                    lineDocument = sectionDocument;
+                    sectionBackCallback.setEnabled(true);
+                    if (getSupportActionBar() != null) {
+                      getSupportActionBar()
+                          .setSubtitle(group.label + " · " + infoOptions[group.mode]);
+                    }
+
+                    matchOffsets = starts;
+                    matchLengths = group.lengths;
+                    matchTerms = group.terms;
+                    currentMatchIndex = 0;
+                    lastSearchQuery = currentSearchQuery;
+                    reportAdapter.setHighlights(
+                        matchOffsets, matchLengths, matchTerms, currentMatchIndex);
+                    showSearchCount();
+                    scrollToOffset(starts[0]);
+                  });
+            });
+  }
+
   private void openSearch() {
     searchBar.setVisibility(View.VISIBLE);
     searchInput.requestFocus();
@@ -461,14 +1320,8 @@ public class MainActivity extends BaseActivity {
       searchProgressIndicator.setVisibility(View.VISIBLE);
     }
 
-    if (currentSearchFuture != null) {
-      currentSearchFuture.cancel(true);
-    }
-    try {
-      searchExecutor.getQueue().clear();
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    TaskScheduler.cancel(currentSearchFuture);
+    TaskScheduler.cancelPending(TaskScheduler.Lane.SEARCH);
 
     final String query = currentSearchQuery;
     final int targetIndex = currentMatchIndex;
@@ -476,69 +1329,97 @@ public class MainActivity extends BaseActivity {
 
     if (query.trim().isEmpty()) {
       lastSearchQuery = "";
-      matchOffsets.clear();
+      matchOffsets = new int[0];
+      matchLengths = new int[0];
+      matchTerms = null;
+      matchTermCounts = null;
       currentMatchIndex = -1;
       searchCount.setText("0/0");
       if (searchProgressIndicator != null) {
         searchProgressIndicator.setVisibility(View.GONE);
       }
-      if (cachedPrecomputedText != null) {
-        androidx.core.widget.TextViewCompat.setPrecomputedText(textView, cachedPrecomputedText);
-      } else {
-        textView.setText(cachedSpannableText != null ? cachedSpannableText : "");
-      }
+      reportAdapter.clearHighlights();
       return;
     }
 
-    // Ensure cache is available
-    if (cachedSpannableText == null) {
-      CharSequence text = textView.getText();
-      cachedSpannableText = new SpannableStringBuilder(text != null ? text : "");
-      cachedPlainText = cachedSpannableText.toString();
-      cachedLowerPlainText = cachedPlainText.toLowerCase(java.util.Locale.US);
-    } else if (cachedLowerPlainText == null || cachedLowerPlainText.isEmpty()) {
-      cachedLowerPlainText = cachedPlainText.toLowerCase(java.util.Locale.US);
-    }
-
-    final String searchTargetText = cachedPlainText;
-    final SpannableStringBuilder baseSpannable = cachedSpannableText;
-
     // Fast-path: If query hasn't changed, we don't need to re-find matches!
-    boolean needRequery = forceRequery || !query.equals(lastSearchQuery) || matchOffsets.isEmpty();
+    boolean needRequery =
+        forceRequery || !query.equals(lastSearchQuery) || matchOffsets.length == 0;
+
+    if (!needRequery) {
+      // Navigation only: move the highlight window and scroll, no search or relayout
+      currentMatchIndex = targetIndex < 0 || targetIndex >= matchOffsets.length ? 0 : targetIndex;
+      reportAdapter.setHighlights(matchOffsets, matchLengths, matchTerms, currentMatchIndex);
+      showSearchCount();
+      scrollToOffset(matchOffsets[currentMatchIndex]);
+      if (searchProgressIndicator != null) {
+        searchProgressIndicator.setVisibility(View.GONE);
+      }
+      return;
+    }
 
-    // Fetch text metrics parameters on the main thread
-    final PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(textView);
+    // Nothing to search until the report has been generated
+    if (currentDocument == null) {
+      if (searchProgressIndicator != null) {
+        searchProgressIndicator.setVisibility(View.GONE);
+      }
+      return;
+    }
+    final ReportDocument document = currentDocument;
+    final ReportSearchIndex.Result previousResult = lastSearchResult;
 
+    final long searchStartedAt = System.nanoTime();
     currentSearchFuture =
-        searchExecutor.submit(
+        TaskScheduler.submit(
+            TaskScheduler.Lane.SEARCH,
             () -> {
               if (generation != searchGeneration || Thread.currentThread().isInterrupted()) return;
 
-              final java.util.ArrayList<Integer> localMatches;
-              if (needRequery) {
-                final String queryLower = query.toLowerCase(java.util.Locale.US);
-                final String textStrLower = cachedLowerPlainText;
-                localMatches = new java.util.ArrayList<>();
-
-                int index = textStrLower.indexOf(queryLower);
-                while (index >= 0) {
-                  if (generation != searchGeneration || Thread.currentThread().isInterrupted())
-                    return;
-                  localMatches.add(index);
-                  if (localMatches.size() >= 1000) {
-                    break;
-                  }
-                  index = textStrLower.indexOf(queryLower, index + 1);
+              final ReportSearchIndex.Result result;
+              final int[] localMatches;
+              final int[] localLengths;
+              int[] localTerms = null;
+              int[] localTermCounts = null;
+              MultiTermMatcher multiTerm = MultiTermMatcher.parse(query);
+              ReportQuery structured = multiTerm == null ? ReportQuery.parse(query) : null;
+              if (multiTerm != null) {
+                // "any:" terms are all found in one pass, each with its own color
+                MultiTermMatcher.Result found = multiTerm.find(document.text);
+                result = null;
+                localMatches = found.starts;
+                localLengths = found.lengths;
+                localTerms = found.terms;
+                localTermCounts = found.counts;
+              } else if (structured != null) {
+                // key:/value/camera:/facing:/type: terms select whole fields
+                ReportFieldIndex fieldIndex = document.getFieldIndex();
+                int[] fields = structured.run(fieldIndex);
+                result = null;
+                localMatches = new int[fields.length];
+                localLengths = new int[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                  localMatches[i] = fieldIndex.getFieldStart(fields[i]);
+                  localLengths[i] = fieldIndex.getFieldLength(fields[i]);
                 }
               } else {
-                // Reuse precalculated matches
-                localMatches = new java.util.ArrayList<>(matchOffsets);
+                ReportSearchIndex index = document.getSearchIndexIfBuilt();
+                if (index != null) {
+                  result = index.search(query, previousResult);
+                  localMatches = result.matches;
+                } else {
+                  // Scan the text directly until the background index build finishes
+                  result = null;
+                  localMatches = new FoldedMatcher(query).findAll(document.text);
+                }
+                localLengths = new int[localMatches.length];
+                java.util.Arrays.fill(localLengths, query.length());
               }
 
               if (generation != searchGeneration || Thread.currentThread().isInterrupted()) return;
 
-              final SpannableStringBuilder spannable = new SpannableStringBuilder(baseSpannable);
-              final int matchCount = localMatches.size();
+              final int matchCount = localMatches.length;
+              final int[] finalTerms = localTerms;
+              final int[] finalTermCounts = localTermCounts;
               final int finalMatchIndex;
               if (matchCount > 0) {
                 if (targetIndex < 0 || targetIndex >= matchCount) {
@@ -546,56 +1427,31 @@ public class MainActivity extends BaseActivity {
                 } else {
                   finalMatchIndex = targetIndex;
                 }
-
-                int highlightColor = 0x66FFEB3B; // Yellow with 40% opacity
-                int currentHighlightColor = 0xFFFF9800; // Orange or bright yellow for current match
-
-                int windowSize = 50;
-                int startHighlight = Math.max(0, finalMatchIndex - windowSize);
-                int endHighlight = Math.min(matchCount - 1, finalMatchIndex + windowSize);
-
-                for (int i = startHighlight; i <= endHighlight; i++) {
-                  if (generation != searchGeneration || Thread.currentThread().isInterrupted())
-                    return;
-                  int start = localMatches.get(i);
-                  int end = start + query.length();
-                  int color = (i == finalMatchIndex) ? currentHighlightColor : highlightColor;
-
-                  spannable.setSpan(
-                      new BackgroundColorSpan(color),
-                      start,
-                      end,
-                      Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
               } else {
                 finalMatchIndex = -1;
               }
 
-              if (generation != searchGeneration || Thread.currentThread().isInterrupted()) return;
-
-              // Precompute layout off the main thread
-              final PrecomputedTextCompat precomputedText =
-                  PrecomputedTextCompat.create(spannable, params);
-
-              if (generation != searchGeneration || Thread.currentThread().isInterrupted()) return;
+              SearchLatency.record(document.text.length(), System.nanoTime() - searchStartedAt);
 
               searchHandler.post(
                   () -> {
                     if (generation != searchGeneration) return;
 
-                    matchOffsets.clear();
-                    matchOffsets.addAll(localMatches);
+                    matchOffsets = localMatches;
+                    matchLengths = localLengths;
+                    matchTerms = finalTerms;
+                    matchTermCounts = finalTermCounts;
+                    lastSearchResult = result;
                     currentMatchIndex = finalMatchIndex;
                     lastSearchQuery = query;
 
-                    // Apply precomputed text layout instantly to prevent main-thread block
-                    TextViewCompat.setPrecomputedText(textView, precomputedText);
+                    // Only the blocks that contain highlights are rebound
+                    reportAdapter.setHighlights(
+                        matchOffsets, matchLengths, matchTerms, currentMatchIndex);
 
+                    showSearchCount();
                     if (matchCount > 0) {
-                      searchCount.setText((currentMatchIndex + 1) + "/" + matchCount);
-                      scrollToOffset(matchOffsets.get(currentMatchIndex));
-                    } else {
-                      searchCount.setText("0/0");
+                      scrollToOffset(matchOffsets[currentMatchIndex]);
                     }
 
                     if (searchProgressIndicator != null) {
@@ -605,18 +1461,57 @@ public class MainActivity extends BaseActivity {
             });
   }
 
+  /** Shows the current match position, followed by the count of each term in its color. */
+  private void showSearchCount() {
+    if (matchOffsets.length == 0) {
+      searchCount.setText("0/0");
+      return;
+    }
+    SpannableStringBuilder text =
+        new SpannableStringBuilder((currentMatchIndex + 1) + "/" + matchOffsets.length);
+    if (matchTermCounts != null) {
+      for (int term = 0; term < matchTermCounts.length; term++) {
+        text.append(' ');
+        int start = text.length();
+        text.append(String.valueOf(matchTermCounts[term]));
+        text.setSpan(
+            new BackgroundColorSpan(ReportAdapter.getTermColor(term)),
+            start,
+            text.length(),
+            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+      }
+    }
+    searchCount.setText(text);
+  }
+
   private void scrollToOffset(int offset) {
-    textView.post(
+    int block = reportAdapter.blockForOffset(offset);
+    if (block < 0) return;
+
+    LinearLayoutManager layoutManager = (LinearLayoutManager) reportView.getLayoutManager();
+
+    // The line table places the match without any layout; only wrapped lines make it inexact
+    int lineInBlock = 0;
+    if (lineDocument != null) {
+      lineInBlock =
+          lineDocument.lineForOffset(offset)
+              - lineDocument.lineForOffset(reportAdapter.getBlockStart(block));
+    }
+    layoutManager.scrollToPositionWithOffset(block, -lineInBlock * reportLineHeight);
+
+    // Refine to the matching line once the block has been laid out
+    reportView.post(
         () -> {
-          android.text.Layout layout = textView.getLayout();
-          if (layout != null) {
-            int line = layout.getLineForOffset(offset);
-            int lineTop = layout.getLineTop(line);
-            androidx.core.widget.NestedScrollView scrollView = findViewById(R.id.scrollView);
-            if (scrollView != null) {
-              scrollView.smoothScrollTo(0, lineTop);
-            }
-          }
+          RecyclerView.ViewHolder holder = reportView.findViewHolderForAdapterPosition(block);
+          if (!(holder instanceof ReportAdapter.ViewHolder)) return;
+          TextView blockText = ((ReportAdapter.ViewHolder) holder).text;
+          android.text.Layout layout = blockText.getLayout();
+          if (layout == null) return;
+          int localOffset = offset - reportAdapter.getBlockStart(block);
+          if (localOffset > blockText.getText().length()) return;
+          int line = layout.getLineForOffset(localOffset);
+          int lineTop = layout.getLineTop(line) + blockText.getPaddingTop();
+          layoutManager.scrollToPositionWithOffset(block, -lineTop);
         });
   }
 
@@ -649,6 +1544,9 @@ public class MainActivity extends BaseActivity {
     View resetIcon = resetView.findViewById(R.id.icon_image);
     resetIcon.setOnClickListener(
         v -> {
+          // Reset regenerates the report from the cameras
+          ReportCache.clear();
+          SnapshotStore.getSnapshotFile(this).delete();
           Intent intent = new Intent(this, MainActivity.class);
           intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
           finish();
@@ -670,16 +1568,16 @@ public class MainActivity extends BaseActivity {
   @Override
   protected void onResume() {
     super.onResume();
+    // Before the first draw, and whenever the theme changed while the report is shown
+    applyReportPalette();
     OTAUpdateHelper.checkForUpdatesIfDue(this);
   }
 
   @Override
   protected void onDestroy() {
     super.onDestroy();
-    try {
-      searchExecutor.shutdownNow();
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    renderGeneration++;
+    TaskScheduler.cancel(currentRenderFuture);
+    TaskScheduler.cancel(currentSearchFuture);
   }
 }
@@ -14,19 +14,24 @@ import java.util.Map;
 import java.util.Set;
 
 public class CameraCache {
-  private static final Map<String, CameraCharacteristics> cache = new HashMap<>();
+  // Swapped as a whole so readers on other threads never see it half loaded
+  private static volatile Map<String, CameraCharacteristics> cache = new HashMap<>();
 
-  public static void loadAll(CameraManager cm, List<String> validCameraIds) {
-    cache.clear();
+  /** Loads the given cameras and returns the loaded map, which is never modified afterwards. */
+  public static Map<String, CameraCharacteristics> loadAll(
+      CameraManager cm, List<String> validCameraIds) {
+    Map<String, CameraCharacteristics> loaded = new HashMap<>();
 
     for (String id : validCameraIds) {
       try {
         CameraCharacteristics c = cm.getCameraCharacteristics(id);
-        cache.put(id, c);
+        loaded.put(id, c);
       } catch (Exception e) {
         e.printStackTrace();
       }
     }
+    cache = loaded;
+    return loaded;
   }
 
   public static CameraCharacteristics get(String cameraId) {
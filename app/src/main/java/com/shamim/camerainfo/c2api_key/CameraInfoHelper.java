@@ -1,5 +1,6 @@
 package com.shamim.camerainfo.c2api_key;
 
+import android.content.Context;
 import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraManager;
 import android.util.SizeF;
@@ -7,18 +8,21 @@ import com.shamim.camerainfo.activity.*;
 import com.shamim.camerainfo.exception_catcher.*;
 import com.shamim.camerainfo.preference.*;
 import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.report.*;
 import com.shamim.camerainfo.update_checker.*;
 import com.shamim.camerainfo.util.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 public class CameraInfoHelper {
 
-  private static final List<String> validCameraIds = new ArrayList<>();
-
-  private static void scanCameras(CameraManager cameraManager) {
-    validCameraIds.clear();
+  static List<String> scanCameras(CameraManager cameraManager) {
+    List<String> validCameraIds = new ArrayList<>();
     if (cameraManager != null) {
       for (int id = 0; id < 512; id++) {
         try {
@@ -30,38 +34,156 @@ public class CameraInfoHelper {
         }
       }
     }
+    return validCameraIds;
+  }
+
+  /** Writes a whole report for a log mode: device info, the camera list and every camera. */
+  public static void appendReport(
+      Context context, CameraManager cm, int logmode, ReportBuilder sb) {
+    appendDeviceInfo(context, logmode, sb);
+    appendAllCameraInfo(cm, sb, logmode);
+  }
+
+  /** Same as above, from a scan that may be shared with the reports of other modes. */
+  public static void appendReport(Context context, CameraScan scan, int logmode, ReportBuilder sb) {
+    appendDeviceInfo(context, logmode, sb);
+    appendAllCameraInfo(scan, sb, logmode);
+  }
+
+  /**
+   * Generates the reports of several modes from one camera scan. Every mode but the first is
+   * rendered as its own task on executor and the first on the calling thread, so the whole takes
+   * about as long as the slowest mode instead of the sum of all of them. Tasks still queued when
+   * the caller needs them run on the calling thread, so it is safe to call from executor's own
+   * threads.
+   */
+  public static ReportDocument[] generateReports(
+      Context context, CameraManager cm, int[] modes, Executor executor)
+      throws InterruptedException {
+    ReportDocument[] documents = new ReportDocument[modes.length];
+    if (modes.length == 0) return documents;
+
+    CameraScan scan;
+    try {
+      scan = CameraScan.run(cm);
+    } catch (Exception e) {
+      // Each report then scans on its own and shows the error like a single report would
+      e.printStackTrace();
+      scan = null;
+    }
+
+    List<FutureTask<ReportDocument>> tasks = new ArrayList<>();
+    for (int i = 1; i < modes.length; i++) {
+      FutureTask<ReportDocument> task =
+          new FutureTask<>(generateReport(context, cm, scan, modes[i])::get);
+      tasks.add(task);
+      executor.execute(task);
+    }
+    try {
+      documents[0] = generateReport(context, cm, scan, modes[0]).get();
+      for (int i = 1; i < modes.length; i++) {
+        FutureTask<ReportDocument> task = tasks.get(i - 1);
+        // A task no thread has taken yet runs here rather than waiting for one: every thread of
+        // executor may be a caller blocked like this one. A started task ignores the second run
+        task.run();
+        documents[i] = task.get();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException
+          ? (RuntimeException) cause
+          : new RuntimeException(cause);
+    } finally {
+      for (FutureTask<ReportDocument> task : tasks) task.cancel(true);
+    }
+    return documents;
+  }
+
+  private static Supplier<ReportDocument> generateReport(
+      Context context, CameraManager cm, CameraScan scan, int logmode) {
+    return () -> {
+      ReportBuilder report = new ReportBuilder();
+      if (scan != null) {
+        appendReport(context, scan, logmode, report);
+      } else {
+        appendReport(context, cm, logmode, report);
+      }
+      return report.toDocument(logmode);
+    };
+  }
+
+  private static void appendDeviceInfo(Context context, int logmode, ReportBuilder sb) {
+    sb.appendParsed(DeviceInfo.getDeviceInfoText(context, logmode));
+    if (!sb.isEmpty()) {
+      sb.append("\n");
+    }
+    sb.endSection("Device");
+  }
+
+  /**
+   * Writes the camcorder profiles of every camera of scan, one section per camera, all labeled
+   * label so they can be exported together. Reports of mode 2 already hold them.
+   */
+  public static void appendCamcorderMatrix(CameraScan scan, ReportBuilder sb, String label) {
+    try {
+      sb.setExpectedSections(scan.cameraIds.size());
+      for (String id : scan.cameraIds) {
+        sb.field("CameraID", id);
+        sb.appendParsed(CamcorderProfileLogger.getCamcorderLog(Integer.parseInt(id)));
+        sb.append("\n");
+        sb.endSection(label);
+      }
+    } catch (CancellationException e) {
+      throw e;
+    } catch (Exception e) {
+      e.printStackTrace();
+      sb.appendParsed("Error: " + e.getMessage());
+      sb.endSection(label);
+    }
   }
 
   public static String getAllCameraInfo(CameraManager cm) {
+    ReportBuilder report = new ReportBuilder();
+    appendAllCameraInfo(cm, report);
+    return report.toString();
+  }
 
+  public static void appendAllCameraInfo(CameraManager cm, ReportBuilder sb) {
     // extra info
-    int logmode = SharedPrefValues.getValue("pref_log_mode", 0);
+    appendAllCameraInfo(cm, sb, SharedPrefValues.getValue("pref_log_mode", 0));
+  }
 
-    StringBuilder sb = new StringBuilder();
+  public static void appendAllCameraInfo(CameraManager cm, ReportBuilder sb, int logmode) {
+    appendCameras(cm, null, sb, logmode);
+  }
+
+  public static void appendAllCameraInfo(CameraScan scan, ReportBuilder sb, int logmode) {
+    appendCameras(scan.cameraManager, scan, sb, logmode);
+  }
 
+  /** Writes the camera list and every camera, scanning the cameras first if scan is null. */
+  private static void appendCameras(
+      CameraManager cm, CameraScan scan, ReportBuilder sb, int logmode) {
     try {
-      scanCameras(cm);
+      if (scan == null) scan = CameraScan.run(cm);
+      List<String> validCameraIds = scan.cameraIds;
 
-      CameraCache.loadAll(cm, validCameraIds);
-      Map<String, CameraLensClassifier.LensResult> lensMap =
-          CameraLensClassifier.detectLensesAndReturnMap(validCameraIds);
+      // Camera list header plus one section per camera
+      sb.setExpectedSections(sb.getSectionCount() + 1 + validCameraIds.size());
 
-      sb.append("CameraManager IDs List = ")
-          .append(BuildPropHelper.objectToString(cm.getCameraIdList()))
-          .append("\n")
+      sb.field("CameraManager IDs List", scan.cameraIdList)
           .append("\n============================\n");
 
-      sb.append("\nAll Camera IDs = ").append(validCameraIds.toString()).append("\n");
+      sb.append("\n").field("All Camera IDs", validCameraIds.toString());
       sb.append("\n=================================\n\n");
+      sb.endSection("Camera IDs");
 
       for (String id : validCameraIds) {
-        CameraCharacteristics c = CameraCache.get(id);
+        CameraCharacteristics c = scan.get(id);
         if (c == null) continue;
 
-        // CameraID
-        sb.append("CameraID = [").append(id).append("] ");
-        // Logical lens detection
-        sb.append(Camera2ApiKeysInfo.DetectPhysicalLens(c)).append("\n");
+        // CameraID + logical lens detection
+        sb.field("CameraID", "[" + id + "] " + Camera2ApiKeysInfo.DetectPhysicalLens(c));
 
         // Facing
         String facingStr = "UNKNOWN";
@@ -75,79 +197,77 @@ public class CameraInfoHelper {
           }
         } catch (Exception ignored) {
         }
-        sb.append("Facing = ").append(facingStr).append("\n");
+        sb.field("Facing", facingStr);
 
         // Lens type & zoomFactor
-        CameraLensClassifier.LensResult lensResult = lensMap.get(id);
+        CameraLensClassifier.LensResult lensResult = scan.getLens(id);
+        String type = "UNKNOWN";
+        String zoom = "?";
         if (lensResult != null) {
           try {
-            sb.append("Type = ").append(lensResult.type.toString()).append("\n");
-            sb.append("Zoom = ").append(String.format("%.2fx", lensResult.zoomFactor)).append("\n");
+            type = lensResult.type.toString();
+            zoom = String.format("%.2fx", lensResult.zoomFactor);
           } catch (Exception ignored) {
-            sb.append("Type = UNKNOWN\n");
-            sb.append("Zoom = ?\n");
+            type = "UNKNOWN";
+            zoom = "?";
           }
-        } else {
-          sb.append("Type = UNKNOWN\n");
-          sb.append("Zoom = ?\n");
         }
+        sb.field("Type", type);
+        sb.field("Zoom", zoom);
 
         // Focal length & 35mm equivalent
+        String focalStr = "?";
+        String focalEqStr = "?";
         try {
           float[] focalLengths = c.get(CameraCharacteristics.LENS_INFO_AVAILABLE_FOCAL_LENGTHS);
           SizeF sensorSize = c.get(CameraCharacteristics.SENSOR_INFO_PHYSICAL_SIZE);
           if (focalLengths != null && focalLengths.length > 0 && sensorSize != null) {
             float focal = focalLengths[0];
-
-            if (logmode != 1) {
-              sb.append("FocalLength = ").append(String.format("%.2fmm", focal)).append("\n");
-            }
+            focalStr = String.format("%.2fmm", focal);
 
             float focalEq = Camera2ApiKeysInfo.calculate35mmeqv(focal, sensorSize);
-            sb.append("35mm eqv FocalLength = ")
-                .append(String.format("%.2fmm", focalEq))
-                .append("\n");
-          } else {
-            if (logmode != 1) {
-              sb.append("FocalLength = ?\n");
-            }
-            sb.append("35mm eqv FocalLength = ?\n");
+            focalEqStr = String.format("%.2fmm", focalEq);
           }
         } catch (Exception ignored) {
-          if (logmode != 1) {
-            sb.append("FocalLength = ?\n");
-          }
-          sb.append("35mm eqv FocalLength = ?\n");
+          focalStr = "?";
+          focalEqStr = "?";
         }
+        if (logmode != 1) {
+          sb.field("FocalLength", focalStr);
+        }
+        sb.field("35mm eqv FocalLength", focalEqStr);
 
         if (logmode == 0) {
-          sb.append(Camera2ApiKeysInfo.buildExtraDetails(c));
-          sb.append(BasicCameraInfoConcate.describeAll(c));
-          sb.append(Camera2ApiKeysInfo.getMoreInfos(c)).append("\n");
+          sb.appendParsed(Camera2ApiKeysInfo.buildExtraDetails(c));
+          sb.appendParsed(BasicCameraInfoConcate.describeAll(c));
+          sb.appendParsed(Camera2ApiKeysInfo.getMoreInfos(c)).append("\n");
           sb.append("\n");
         } else if (logmode == 2) {
-          sb.append(CamcorderProfileLogger.getCamcorderLog(Integer.parseInt(id)));
+          sb.appendParsed(CamcorderProfileLogger.getCamcorderLog(Integer.parseInt(id)));
         } else if (logmode == 1) {
-          sb.append(Camera2ApiKeysInfo.formatHwLevel(c));
+          sb.appendParsed(Camera2ApiKeysInfo.formatHwLevel(c));
           sb.append("\n\n");
-          sb.append(Camera2ApiKeysInfo.formatAvailableCapabilities(c));
+          sb.appendParsed(Camera2ApiKeysInfo.formatAvailableCapabilities(c));
           sb.append("\n\n");
-          sb.append(CameraResolationFormatter.formatOutputSizes(c));
+          sb.appendParsed(CameraResolationFormatter.formatOutputSizes(c));
           sb.append("\n\n");
-          sb.append(CameraCharacteristicsFormatter.formatCameraCharacteristics(c));
+          sb.appendParsed(CameraCharacteristicsFormatter.formatCameraCharacteristics(c));
           sb.append("\n");
-          sb.append(CaptureResultFormatter.formatResultKeys(c));
+          sb.appendParsed(CaptureResultFormatter.formatResultKeys(c));
           sb.append("\n");
-          sb.append(CaptureRequestFormatter.formatRequestKeys(c));
+          sb.appendParsed(CaptureRequestFormatter.formatRequestKeys(c));
           sb.append("\n");
         }
         sb.append("=================================\n\n");
+        sb.endSection("Camera " + id);
       }
+    } catch (CancellationException e) {
+      // The consumer no longer wants this report
+      throw e;
     } catch (Exception e) {
       e.printStackTrace();
-      sb.append("Error: ").append(e.getMessage());
+      sb.appendParsed("Error: " + e.getMessage());
     }
-
-    return sb.toString();
+    sb.endSection("End");
   }
 }
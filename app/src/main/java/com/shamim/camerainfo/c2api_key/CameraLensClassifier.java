@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CameraLensClassifier {
 
@@ -63,7 +64,8 @@ public class CameraLensClassifier {
   }
 
   // cache CameraCharacteristics for equality / logical detection
-  private static final Map<String, CameraCharacteristics> cameraPropsMap = new HashMap<>();
+  private static final Map<String, CameraCharacteristics> cameraPropsMap =
+      new ConcurrentHashMap<>();
 
   private static final Comparator<LensInfo> SORT_BY_AOV =
       Comparator.comparingDouble(i -> i.angleOfView);
@@ -223,10 +223,12 @@ public class CameraResolationFormatter {
   }
 
   private static String getFormatName(int format) {
-    return FORMAT_NAME_MAP.getOrDefault(format, String.format("UNKNOWN_0x%X", format))
-        + "("
-        + String.valueOf(format)
-        + ")";
+    return getFormatShortName(format) + "(" + String.valueOf(format) + ")";
+  }
+
+  /** Format name without its value, for example RAW10. */
+  static String getFormatShortName(int format) {
+    return FORMAT_NAME_MAP.getOrDefault(format, String.format("UNKNOWN_0x%X", format));
   }
 
   private static String getFormatDescription(int format) {
@@ -0,0 +1,59 @@
+package com.shamim.camerainfo.c2api_key;
+
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.report.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a report reads from the camera service: the probed camera ids, their
+ * characteristics and the lens classification. It is immutable once created, so one scan can feed
+ * the renderers of several modes at the same time.
+ */
+public final class CameraScan {
+
+  public final CameraManager cameraManager;
+  public final List<String> cameraIds;
+  public final String cameraIdList;
+  private final Map<String, CameraCharacteristics> characteristics;
+  private final Map<String, CameraLensClassifier.LensResult> lenses;
+
+  private CameraScan(
+      CameraManager cameraManager,
+      List<String> cameraIds,
+      String cameraIdList,
+      Map<String, CameraCharacteristics> characteristics,
+      Map<String, CameraLensClassifier.LensResult> lenses) {
+    this.cameraManager = cameraManager;
+    this.cameraIds = Collections.unmodifiableList(cameraIds);
+    this.cameraIdList = cameraIdList;
+    this.characteristics = characteristics;
+    this.lenses = lenses;
+  }
+
+  /** Probes the camera ids and loads every camera once. */
+  public static CameraScan run(CameraManager cm) throws Exception {
+    List<String> validCameraIds = CameraInfoHelper.scanCameras(cm);
+    Map<String, CameraCharacteristics> loaded = CameraCache.loadAll(cm, validCameraIds);
+    Map<String, CameraLensClassifier.LensResult> lensMap =
+        CameraLensClassifier.detectLensesAndReturnMap(validCameraIds);
+    String idList = BuildPropHelper.objectToString(cm.getCameraIdList());
+    return new CameraScan(cm, validCameraIds, idList, loaded, lensMap);
+  }
+
+  public CameraCharacteristics get(String cameraId) {
+    return characteristics.get(cameraId);
+  }
+
+  public CameraLensClassifier.LensResult getLens(String cameraId) {
+    return lenses.get(cameraId);
+  }
+}
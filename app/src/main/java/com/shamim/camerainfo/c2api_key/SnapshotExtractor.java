@@ -0,0 +1,186 @@
+package com.shamim.camerainfo.c2api_key;
+
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.os.Build;
+import android.util.Range;
+import android.util.Rational;
+import android.util.Size;
+import android.util.SizeF;
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.report.*;
+import com.shamim.camerainfo.snapshot.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link Snapshot} from the camera service. Every characteristic is stored under its
+ * camera2 key name with a typed value; values the app derives itself (lens type, stream configs,
+ * camcorder profiles) use the {@link Snapshot#DERIVED_PREFIX} prefix.
+ */
+public class SnapshotExtractor {
+
+  public static Snapshot extract(CameraManager cm) {
+    Snapshot snapshot = new Snapshot();
+    putDevice(snapshot.device);
+
+    List<String> validCameraIds = CameraInfoHelper.scanCameras(cm);
+    CameraCache.loadAll(cm, validCameraIds);
+    Map<String, CameraLensClassifier.LensResult> lensMap =
+        CameraLensClassifier.detectLensesAndReturnMap(validCameraIds);
+
+    for (String id : validCameraIds) {
+      CameraCharacteristics c = CameraCache.get(id);
+      if (c == null) continue;
+
+      Snapshot.Camera camera = new Snapshot.Camera(id);
+      for (CameraCharacteristics.Key<?> key : c.getKeys()) {
+        Object value;
+        try {
+          value = c.get(key);
+        } catch (Exception e) {
+          continue;
+        }
+        if (value == null) continue;
+        if (value instanceof StreamConfigurationMap) {
+          putStreamConfigs(camera.values, (StreamConfigurationMap) value);
+        } else {
+          camera.values.put(key.getName(), toValue(value));
+        }
+      }
+
+      CameraLensClassifier.LensResult lens = lensMap.get(id);
+      if (lens != null) {
+        camera.values.put(Snapshot.LENS_TYPE, lens.type.toString());
+        camera.values.put(Snapshot.LENS_ZOOM_FACTOR, lens.zoomFactor);
+      }
+
+      try {
+        List<String> profiles =
+            CamcorderProfileLogger.getAvailableCamcorderProfiles(Integer.parseInt(id));
+        String[] lines = new String[profiles.size()];
+        for (int i = 0; i < lines.length; i++) lines[i] = profiles.get(i).trim();
+        camera.values.put(Snapshot.CAMCORDER_PROFILES, lines);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      snapshot.cameras.add(camera);
+    }
+    return snapshot;
+  }
+
+  private static void putDevice(Map<String, Object> device) {
+    device.put("build.brand", Build.BRAND);
+    device.put("build.manufacturer", Build.MANUFACTURER);
+    device.put("build.model", Build.MODEL);
+    device.put("build.device", Build.DEVICE);
+    device.put("build.product", Build.PRODUCT);
+    device.put("build.hardware", Build.HARDWARE);
+    device.put("build.board", Build.BOARD);
+    device.put("build.fingerprint", Build.FINGERPRINT);
+    device.put("build.version.release", Build.VERSION.RELEASE);
+    device.put("build.version.sdk", Build.VERSION.SDK_INT);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+      device.put("build.soc.manufacturer", Build.SOC_MANUFACTURER);
+      device.put("build.soc.model", Build.SOC_MODEL);
+    }
+  }
+
+  /** Output sizes as packed width, height pairs and min frame durations per format. */
+  private static void putStreamConfigs(Map<String, Object> values, StreamConfigurationMap map) {
+    for (int format : map.getOutputFormats()) {
+      Size[] sizes = map.getOutputSizes(format);
+      if (sizes == null) continue;
+      int[] packed = new int[sizes.length * 2];
+      long[] durations = new long[sizes.length];
+      for (int i = 0; i < sizes.length; i++) {
+        packed[2 * i] = sizes[i].getWidth();
+        packed[2 * i + 1] = sizes[i].getHeight();
+        durations[i] = map.getOutputMinFrameDuration(format, sizes[i]);
+      }
+      String prefix =
+          Snapshot.STREAM_PREFIX + CameraResolationFormatter.getFormatShortName(format);
+      values.put(prefix + Snapshot.OUTPUT_SIZES, packed);
+      values.put(prefix + Snapshot.MIN_FRAME_DURATIONS, durations);
+    }
+  }
+
+  /** Converts a characteristic to one of the snapshot value types. */
+  static Object toValue(Object value) {
+    if (value instanceof String
+        || value instanceof Boolean
+        || value instanceof Integer
+        || value instanceof Long
+        || value instanceof Float
+        || value instanceof Double
+        || value instanceof int[]
+        || value instanceof long[]
+        || value instanceof float[]) {
+      return value;
+    }
+    if (value instanceof Byte) return (int) (Byte) value;
+    if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      int[] ints = new int[bytes.length];
+      for (int i = 0; i < bytes.length; i++) ints[i] = bytes[i];
+      return ints;
+    }
+    if (value instanceof Size) {
+      Size size = (Size) value;
+      return new int[] {size.getWidth(), size.getHeight()};
+    }
+    if (value instanceof SizeF) {
+      SizeF size = (SizeF) value;
+      return new float[] {size.getWidth(), size.getHeight()};
+    }
+    if (value instanceof Range && ((Range<?>) value).getLower() instanceof Integer) {
+      Range<?> range = (Range<?>) value;
+      return new int[] {(Integer) range.getLower(), (Integer) range.getUpper()};
+    }
+    if (value instanceof Range && ((Range<?>) value).getLower() instanceof Long) {
+      Range<?> range = (Range<?>) value;
+      return new long[] {(Long) range.getLower(), (Long) range.getUpper()};
+    }
+    if (value instanceof Rational) return value.toString();
+    if (value instanceof Size[]) {
+      Size[] sizes = (Size[]) value;
+      int[] packed = new int[sizes.length * 2];
+      for (int i = 0; i < sizes.length; i++) {
+        packed[2 * i] = sizes[i].getWidth();
+        packed[2 * i + 1] = sizes[i].getHeight();
+      }
+      return packed;
+    }
+    if (value instanceof Range[] && isIntRanges((Range<?>[]) value)) {
+      Range<?>[] ranges = (Range<?>[]) value;
+      int[] packed = new int[ranges.length * 2];
+      for (int i = 0; i < ranges.length; i++) {
+        packed[2 * i] = (Integer) ranges[i].getLower();
+        packed[2 * i + 1] = (Integer) ranges[i].getUpper();
+      }
+      return packed;
+    }
+    if (value instanceof Object[]) {
+      Object[] array = (Object[]) value;
+      String[] strings = new String[array.length];
+      for (int i = 0; i < array.length; i++) {
+        strings[i] = BuildPropHelper.objectToString(array[i]);
+      }
+      return strings;
+    }
+    return BuildPropHelper.objectToString(value);
+  }
+
+  private static boolean isIntRanges(Range<?>[] ranges) {
+    for (Range<?> range : ranges) {
+      if (!(range.getLower() instanceof Integer)) return false;
+    }
+    return true;
+  }
+}
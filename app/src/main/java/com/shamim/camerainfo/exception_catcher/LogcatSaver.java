@@ -32,8 +32,14 @@ public class LogcatSaver {
 
   /**
    * Start saving logcat data to file. Uses SAF on Android 11+, legacy storage for older versions.
+   * The capture runs on the background lane, never on the caller's thread.
    */
   public static void RunLog(Context context) {
+    Context appContext = context.getApplicationContext();
+    TaskScheduler.submit(TaskScheduler.Lane.BACKGROUND, () -> saveLog(appContext));
+  }
+
+  private static void saveLog(Context context) {
 
     appName = context.getApplicationInfo().loadLabel(context.getPackageManager()).toString();
 
@@ -73,7 +79,7 @@ public class LogcatSaver {
             + "("
             + Build.DEVICE
             + ")"
-            + ".json";
+            + ".txt";
 
     // Delete existing file if it exists
     DocumentFile existingFile = folder.findFile(fileName);
@@ -82,7 +88,7 @@ public class LogcatSaver {
     }
 
     // Create a new file
-    DocumentFile logFile = folder.createFile("application/json", fileName);
+    DocumentFile logFile = folder.createFile("text/plain", fileName);
     if (logFile == null) {
       Log.e(TAG, "Failed to create log file.");
       return;
@@ -127,7 +133,7 @@ public class LogcatSaver {
     }
 
     String fileName =
-        appName + "_" + Build.MANUFACTURER + "_" + Build.MODEL + "(" + Build.DEVICE + ")" + ".json";
+        appName + "_" + Build.MANUFACTURER + "_" + Build.MODEL + "(" + Build.DEVICE + ")" + ".txt";
 
     File file = new File(dir, fileName);
     String buildInfo = BuildPropHelper.getBuildPropInfo("android.os.Build");
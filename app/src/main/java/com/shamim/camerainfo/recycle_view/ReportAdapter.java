@@ -0,0 +1,461 @@
+package com.shamim.camerainfo.recycle_view;
+
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.style.CharacterStyle;
+import android.text.style.UpdateAppearance;
+import android.util.LruCache;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+import com.shamim.camerainfo.R;
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Shows a report as a list of small text blocks so that only the visible blocks are laid out.
+ * Each block is a run of whole lines inside one report section. Sections can be appended while
+ * the rest of the report is still being generated.
+ */
+public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder> {
+
+  // Blocks end on a blank line once they reach MIN_BLOCK_LINES, or are cut at MAX_BLOCK_LINES
+  private static final int MIN_BLOCK_LINES = 8;
+  private static final int MAX_BLOCK_LINES = 48;
+
+  // Blocks whose layout was precomputed in the background before being published
+  private static final int PRECOMPUTED_CACHE_SIZE = 64;
+
+  private static final int HIGHLIGHT_COLOR = 0x66FFEB3B; // Yellow with 40% opacity
+  // Multi-term searches color each term, the first one like a single-term search
+  private static final int[] TERM_HIGHLIGHT_COLORS = {
+    HIGHLIGHT_COLOR, 0x6600BCD4, 0x668BC34A, 0x66E91E63, 0x669C27B0, 0x662196F3
+  };
+  private static final int CURRENT_HIGHLIGHT_COLOR = 0xFFFF9800; // Orange for current match
+  private static final int HIGHLIGHT_WINDOW = 50;
+
+  // Rebind payload: only the highlight spans of the shown text change
+  private static final Object PAYLOAD_HIGHLIGHTS = new Object();
+  // Rebind payload: only the report palette changed, the text and its spans stay
+  private static final Object PAYLOAD_PALETTE = new Object();
+
+  private final List<CharSequence> sectionTexts = new ArrayList<>();
+  private int[] sectionStarts = new int[8];
+  private int[] blockStarts = new int[64];
+  private int[] blockSections = new int[64];
+  private int blockCount = 0;
+  private int textLength = 0;
+
+  private final LruCache<Integer, PrecomputedTextCompat> precomputedBlocks =
+      new LruCache<>(PRECOMPUTED_CACHE_SIZE);
+
+  private int[] matchStarts = new int[0];
+  private int[] matchLengths = new int[0];
+  private int[] matchTerms = null;
+  private int currentMatch = -1;
+
+  private final Executor precomputeExecutor;
+
+  public ReportAdapter(Executor precomputeExecutor) {
+    this.precomputeExecutor = precomputeExecutor;
+  }
+
+  /** Splits text into block start offsets. Safe to call off the main thread. */
+  public static int[] computeBlockStarts(CharSequence text) {
+    int[] starts = new int[64];
+    int count = 0;
+    int length = text.length();
+    int blockStart = 0;
+    int linesInBlock = 0;
+    int lineStart = 0;
+
+    for (int i = 0; i <= length; i++) {
+      if (i < length && text.charAt(i) != '\n') continue;
+
+      boolean blankLine = i == lineStart;
+      linesInBlock++;
+      int next = i + 1;
+
+      if (next < length
+          && ((blankLine && linesInBlock >= MIN_BLOCK_LINES) || linesInBlock >= MAX_BLOCK_LINES)) {
+        if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+        starts[count++] = blockStart;
+        blockStart = next;
+        linesInBlock = 0;
+      }
+      lineStart = next;
+    }
+
+    if (length > 0) {
+      if (count == starts.length) starts = Arrays.copyOf(starts, count + 1);
+      starts[count++] = blockStart;
+    }
+    return Arrays.copyOf(starts, count);
+  }
+
+  /** Reads the text metrics of a report block so sections can be precomputed off the UI thread. */
+  public static PrecomputedTextCompat.Params getTextMetricsParams(ViewGroup parent) {
+    TextView probe =
+        (TextView)
+            LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_report_block, parent, false);
+    return TextViewCompat.getTextMetricsParams(probe);
+  }
+
+  /** Height of one unwrapped line of a report block. */
+  public static int getLineHeight(ViewGroup parent) {
+    TextView probe =
+        (TextView)
+            LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_report_block, parent, false);
+    return probe.getLineHeight();
+  }
+
+  /**
+   * Precomputes the layout of the first blocks of a section. Call off the main thread, then pass
+   * the result to {@link #appendSection}.
+   */
+  public static PrecomputedTextCompat[] precomputeBlocks(
+      CharSequence sectionText,
+      int[] localBlockStarts,
+      int maxBlocks,
+      PrecomputedTextCompat.Params params) {
+    int count = Math.min(maxBlocks, localBlockStarts.length);
+    PrecomputedTextCompat[] result = new PrecomputedTextCompat[count];
+    for (int i = 0; i < count; i++) {
+      int start = localBlockStarts[i];
+      int end =
+          trimLineBreak(
+              sectionText,
+              start,
+              i + 1 < localBlockStarts.length ? localBlockStarts[i + 1] : sectionText.length());
+      result[i] = PrecomputedTextCompat.create(sectionText.subSequence(start, end), params);
+    }
+    return result;
+  }
+
+  private static int trimLineBreak(CharSequence text, int start, int end) {
+    // Drop the line break that separates a block from the next one
+    if (end > start && text.charAt(end - 1) == '\n') end--;
+    return end;
+  }
+
+  /** Appends a finished section and its blocks at the end of the report. */
+  public void appendSection(
+      CharSequence sectionText, int[] localBlockStarts, PrecomputedTextCompat[] precomputed) {
+    int section = sectionTexts.size();
+    int sectionStart = textLength;
+    int firstBlock = blockCount;
+
+    if (section == sectionStarts.length) {
+      sectionStarts = Arrays.copyOf(sectionStarts, section * 2);
+    }
+    sectionTexts.add(sectionText);
+    sectionStarts[section] = sectionStart;
+    textLength += sectionText.length();
+
+    int needed = blockCount + localBlockStarts.length;
+    if (needed > blockStarts.length) {
+      int size = Math.max(needed, blockStarts.length * 2);
+      blockStarts = Arrays.copyOf(blockStarts, size);
+      blockSections = Arrays.copyOf(blockSections, size);
+    }
+    for (int local : localBlockStarts) {
+      blockStarts[blockCount] = sectionStart + local;
+      blockSections[blockCount] = section;
+      blockCount++;
+    }
+
+    if (precomputed != null) {
+      for (int i = 0; i < precomputed.length; i++) {
+        precomputedBlocks.put(firstBlock + i, precomputed[i]);
+      }
+    }
+    notifyItemRangeInserted(firstBlock, blockCount - firstBlock);
+  }
+
+  public void clear() {
+    sectionTexts.clear();
+    blockCount = 0;
+    textLength = 0;
+    precomputedBlocks.evictAll();
+    matchStarts = new int[0];
+    matchLengths = new int[0];
+    matchTerms = null;
+    currentMatch = -1;
+    notifyDataSetChanged();
+  }
+
+  /**
+   * Replaces the highlighted matches. Shown blocks keep their text and layout; only the highlight
+   * spans that differ are added, removed or recolored. Starts must be sorted; lengths holds the
+   * length of each match.
+   */
+  public void setHighlights(int[] starts, int[] lengths, int current) {
+    setHighlights(starts, lengths, null, current);
+  }
+
+  /**
+   * Same as {@link #setHighlights(int[], int[], int)} for a multi-term search. terms holds the
+   * term index of each match, which picks its color; null colors all matches alike.
+   */
+  public void setHighlights(int[] starts, int[] lengths, int[] terms, int current) {
+    int[] oldStarts = matchStarts;
+    int[] oldLengths = matchLengths;
+    int oldCurrent = currentMatch;
+    boolean sameMatches = oldStarts == starts && oldLengths == lengths && matchTerms == terms;
+
+    matchStarts = starts != null ? starts : new int[0];
+    matchLengths = lengths != null ? lengths : new int[0];
+    matchTerms = terms;
+    currentMatch = current;
+
+    if (!sameMatches) {
+      notifyItemRangeChanged(0, blockCount, PAYLOAD_HIGHLIGHTS);
+      return;
+    }
+    notifyWindowChanged(oldStarts, oldLengths, oldCurrent);
+    notifyWindowChanged(matchStarts, matchLengths, currentMatch);
+  }
+
+  /** Highlight color of a term of a multi-term search. */
+  public static int getTermColor(int term) {
+    return TERM_HIGHLIGHT_COLORS[term % TERM_HIGHLIGHT_COLORS.length];
+  }
+
+  private int colorOf(int match) {
+    if (match == currentMatch) return CURRENT_HIGHLIGHT_COLOR;
+    return matchTerms != null ? getTermColor(matchTerms[match]) : HIGHLIGHT_COLOR;
+  }
+
+  /**
+   * Index of the match with this start and length within [first, last], or -1. Matches of
+   * different terms can share a start, so the neighbours of a binary search hit are checked too.
+   */
+  private int indexOfMatch(int start, int length, int first, int last) {
+    int index = Arrays.binarySearch(matchStarts, first, last + 1, start);
+    if (index < 0) return -1;
+    while (index > first && matchStarts[index - 1] == start) index--;
+    for (; index <= last && matchStarts[index] == start; index++) {
+      if (matchLengths[index] == length) return index;
+    }
+    return -1;
+  }
+
+  public void clearHighlights() {
+    if (matchStarts.length == 0) return;
+    setHighlights(new int[0], new int[0], -1);
+  }
+
+  private void notifyWindowChanged(int[] starts, int[] lengths, int current) {
+    if (starts.length == 0 || current < 0) return;
+    int first = Math.max(0, current - HIGHLIGHT_WINDOW);
+    int last = Math.min(starts.length - 1, current + HIGHLIGHT_WINDOW);
+    int firstBlock = blockForOffset(starts[first]);
+    int lastBlock = blockForOffset(starts[last] + lengths[last]);
+    if (firstBlock < 0 || lastBlock < 0) return;
+    notifyItemRangeChanged(firstBlock, lastBlock - firstBlock + 1, PAYLOAD_HIGHLIGHTS);
+  }
+
+  /** Returns the block that contains the given text offset, or -1 if there is no text. */
+  public int blockForOffset(int offset) {
+    if (blockCount == 0) return -1;
+    int index = Arrays.binarySearch(blockStarts, 0, blockCount, offset);
+    if (index < 0) index = -index - 2;
+    return Math.max(0, Math.min(index, blockCount - 1));
+  }
+
+  public int getBlockStart(int block) {
+    return blockStarts[block];
+  }
+
+  private int getBlockEnd(int block) {
+    int section = blockSections[block];
+    int end =
+        block + 1 < blockCount && blockSections[block + 1] == section
+            ? blockStarts[block + 1]
+            : sectionStarts[section] + sectionTexts.get(section).length();
+    int sectionStart = sectionStarts[section];
+    return sectionStart
+        + trimLineBreak(
+            sectionTexts.get(section), blockStarts[block] - sectionStart, end - sectionStart);
+  }
+
+  private boolean hasHighlights(int blockStart, int blockEnd) {
+    if (matchStarts.length == 0 || currentMatch < 0) return false;
+    int first = Math.max(0, currentMatch - HIGHLIGHT_WINDOW);
+    int last = Math.min(matchStarts.length - 1, currentMatch + HIGHLIGHT_WINDOW);
+    return matchStarts[first] < blockEnd && matchStarts[last] + matchLengths[last] > blockStart;
+  }
+
+  @NonNull
+  @Override
+  public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    View view =
+        LayoutInflater.from(parent.getContext())
+            .inflate(R.layout.item_report_block, parent, false);
+    return new ViewHolder(view);
+  }
+
+  @Override
+  public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+    int start = blockStarts[position];
+    int end = getBlockEnd(position);
+
+    PrecomputedTextCompat cached = precomputedBlocks.get(position);
+    if (cached != null && !hasHighlights(start, end)) {
+      try {
+        // Highlights from an earlier search may still be set on the cached text
+        for (HighlightSpan span : cached.getSpans(0, cached.length(), HighlightSpan.class)) {
+          cached.removeSpan(span);
+        }
+        TextViewCompat.setPrecomputedText(holder.text, cached);
+        holder.source = cached;
+        return;
+      } catch (IllegalArgumentException e) {
+        // Text metrics changed since it was precomputed, lay it out again below
+        precomputedBlocks.remove(position);
+      }
+    }
+
+    int section = blockSections[position];
+    int sectionStart = sectionStarts[section];
+    SpannableString block =
+        new SpannableString(
+            sectionTexts.get(section).subSequence(start - sectionStart, end - sectionStart));
+    applyHighlights(block, start, end, null);
+    holder.source = block;
+
+    PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(holder.text);
+    TextViewCompat.setTextFuture(
+        holder.text, PrecomputedTextCompat.getTextFuture(block, params, precomputeExecutor));
+  }
+
+  @Override
+  public void onBindViewHolder(
+      @NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+    if (payloads.isEmpty()
+        || (payloads.contains(PAYLOAD_HIGHLIGHTS) && !updateHighlights(holder, position))) {
+      onBindViewHolder(holder, position);
+      return;
+    }
+    // Role spans read the palette as they draw, so a redraw is all a palette change needs
+    if (payloads.contains(PAYLOAD_PALETTE)) holder.text.invalidate();
+  }
+
+  /** Redraws the bound blocks after {@link ReportPalette} changed, without rebinding their text. */
+  public void notifyPaletteChanged() {
+    notifyItemRangeChanged(0, blockCount, PAYLOAD_PALETTE);
+  }
+
+  /**
+   * Diffs the highlight spans of the text a holder shows against the current matches. Returns
+   * false if the holder does not show this block's text yet, for example while its layout is
+   * still being computed, so that it gets a full bind instead.
+   */
+  private boolean updateHighlights(ViewHolder holder, int position) {
+    CharSequence shown = holder.text.getText();
+    if (!(shown instanceof Spannable) || !TextUtils.equals(shown, holder.source)) return false;
+
+    Spannable text = (Spannable) shown;
+    int blockStart = blockStarts[position];
+    int blockEnd = blockStart + text.length();
+    int first = Math.max(0, currentMatch - HIGHLIGHT_WINDOW);
+    int last = Math.min(matchStarts.length - 1, currentMatch + HIGHLIGHT_WINDOW);
+    boolean recolored = false;
+
+    // Keep spans that are still in the window and fix their color, drop the rest
+    boolean[] present = new boolean[Math.max(0, last - first + 1)];
+    for (HighlightSpan span : text.getSpans(0, text.length(), HighlightSpan.class)) {
+      int index = currentMatch >= 0 ? indexOfMatch(span.start, span.length, first, last) : -1;
+      if (index < 0 || present[index - first]) {
+        text.removeSpan(span);
+        continue;
+      }
+      present[index - first] = true;
+      int color = colorOf(index);
+      if (span.color != color) {
+        span.color = color;
+        recolored = true;
+      }
+    }
+
+    applyHighlights(text, blockStart, blockEnd, present);
+    // Color changes are not span changes, so the view has to redraw itself
+    if (recolored) holder.text.invalidate();
+    return true;
+  }
+
+  /** Adds highlight spans for the matches in the window, skipping those already present. */
+  private void applyHighlights(Spannable block, int blockStart, int blockEnd, boolean[] present) {
+    if (matchStarts.length == 0 || currentMatch < 0) return;
+
+    int first = Math.max(0, currentMatch - HIGHLIGHT_WINDOW);
+    int last = Math.min(matchStarts.length - 1, currentMatch + HIGHLIGHT_WINDOW);
+
+    for (int i = first; i <= last; i++) {
+      if (present != null && present[i - first]) continue;
+      int start = Math.max(matchStarts[i], blockStart);
+      int end = Math.min(matchStarts[i] + matchLengths[i], blockEnd);
+      if (start >= end) continue;
+
+      block.setSpan(
+          new HighlightSpan(matchStarts[i], matchLengths[i], colorOf(i)),
+          start - blockStart,
+          end - blockStart,
+          Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+  }
+
+  @Override
+  public int getItemCount() {
+    return blockCount;
+  }
+
+  /**
+   * Background color for one match. Unlike BackgroundColorSpan its color can change in place, so
+   * moving the current match does not replace spans.
+   */
+  private static final class HighlightSpan extends CharacterStyle implements UpdateAppearance {
+    final int start;
+    final int length;
+    int color;
+
+    HighlightSpan(int start, int length, int color) {
+      this.start = start;
+      this.length = length;
+      this.color = color;
+    }
+
+    @Override
+    public void updateDrawState(TextPaint paint) {
+      paint.bgColor = color;
+    }
+  }
+
+  public static class ViewHolder extends RecyclerView.ViewHolder {
+    public final TextView text;
+    // Text the block was last bound with, to tell whether it is on screen yet
+    CharSequence source;
+
+    public ViewHolder(@NonNull View itemView) {
+      super(itemView);
+      text = itemView.findViewById(R.id.block_text);
+    }
+  }
+}
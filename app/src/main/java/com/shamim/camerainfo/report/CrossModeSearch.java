@@ -0,0 +1,117 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one query over the reports of several log modes and groups the matches by section, that
+ * is by camera, and mode. It works on the documents' search and field indexes only, so none of
+ * the reports has to be colored or laid out.
+ */
+public class CrossModeSearch {
+
+  /** Matches of one section of one mode, with offsets into that mode's report. */
+  public static final class Group {
+    public final int mode;
+    public final int section;
+    public final String label;
+    public final int[] starts;
+    public final int[] lengths;
+    // Term of each match for a multi-term query, otherwise null
+    public final int[] terms;
+
+    Group(int mode, int section, String label, int[] starts, int[] lengths, int[] terms) {
+      this.mode = mode;
+      this.section = section;
+      this.label = label;
+      this.starts = starts;
+      this.lengths = lengths;
+      this.terms = terms;
+    }
+  }
+
+  /**
+   * Searches every document with the same rules as the report search: multi-term if the query
+   * starts with {@link MultiTermMatcher#PREFIX}, structured if it has structured terms, plain text
+   * otherwise. Groups of the same section label are kept together, in the order the labels first
+   * appear, and ordered by mode within a label.
+   */
+  public static List<Group> search(List<ReportDocument> documents, String query) {
+    MultiTermMatcher multiTerm = MultiTermMatcher.parse(query);
+    ReportQuery structured = multiTerm == null ? ReportQuery.parse(query) : null;
+
+    Map<String, List<Group>> byLabel = new HashMap<>();
+    List<String> labels = new ArrayList<>();
+
+    for (ReportDocument document : documents) {
+      int[] starts;
+      int[] lengths;
+      int[] terms = null;
+      if (multiTerm != null) {
+        MultiTermMatcher.Result found = multiTerm.find(document.text);
+        starts = found.starts;
+        lengths = found.lengths;
+        terms = found.terms;
+      } else if (structured != null) {
+        ReportFieldIndex index = document.getFieldIndex();
+        int[] fields = structured.run(index);
+        starts = new int[fields.length];
+        lengths = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+          starts[i] = index.getFieldStart(fields[i]);
+          lengths[i] = index.getFieldLength(fields[i]);
+        }
+      } else {
+        starts = document.getSearchIndex().find(query);
+        lengths = new int[starts.length];
+        Arrays.fill(lengths, query.length());
+      }
+
+      // Matches are in text order, so each section's matches are one run
+      int first = 0;
+      for (int section = 0;
+          section < document.getSectionCount() && first < starts.length;
+          section++) {
+        int end = document.getSectionEnd(section);
+        int last = first;
+        while (last < starts.length && starts[last] < end) last++;
+        if (last == first) continue;
+
+        String label = document.getSectionLabel(section);
+        List<Group> groups = byLabel.get(label);
+        if (groups == null) {
+          groups = new ArrayList<>();
+          byLabel.put(label, groups);
+          labels.add(label);
+        }
+        groups.add(
+            new Group(
+                document.mode,
+                section,
+                label,
+                Arrays.copyOfRange(starts, first, last),
+                Arrays.copyOfRange(lengths, first, last),
+                terms != null ? Arrays.copyOfRange(terms, first, last) : null));
+        first = last;
+      }
+    }
+
+    List<Group> result = new ArrayList<>();
+    for (String label : labels) {
+      List<Group> groups = byLabel.get(label);
+      groups.sort((a, b) -> Integer.compare(a.mode, b.mode));
+      result.addAll(groups);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,95 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.snapshot.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.Arrays;
+
+/**
+ * Writes a {@link SnapshotDiff} as a report: a summary section, then one section for the device
+ * and each camera with changes. Keys are prefixed with {@code +}, {@code -} or {@code ~} for
+ * added, removed and changed values.
+ */
+public final class DiffReport {
+
+  /** Mode of diff documents. It is not a log mode, so they never go into the report cache. */
+  public static final int MODE = -1;
+
+  private static final int MAX_VALUE_LENGTH = 240;
+  private static final int MAX_ARRAY_ITEMS = 8;
+
+  private DiffReport() {}
+
+  public static ReportDocument build(SnapshotDiff diff, String before, String after) {
+    ReportBuilder sb = new ReportBuilder();
+    sb.setExpectedSections(1 + diff.scopes.size());
+    sb.field("Before", " : ", before);
+    sb.field("After", " : ", after);
+    sb.field("Changes", " : ", diff.getChangeCount());
+    sb.field("Compared keys", " : ", diff.comparedKeys);
+    sb.field("Unchanged cameras", " : ", diff.unchangedCameras);
+    if (diff.isEmpty()) sb.append("\nNo differences\n");
+    sb.append("\n=================================\n\n");
+    sb.endSection("Summary");
+
+    for (SnapshotDiff.Scope scope : diff.scopes) {
+      sb.field(
+          scope.cameraId == null ? "Device" : "CameraID",
+          " : ",
+          scope.cameraId == null ? "build properties" : scope.cameraId);
+      for (SnapshotDiff.Change change : scope.changes) appendChange(sb, change);
+      sb.append("\n=================================\n\n");
+      sb.endSection(scope.cameraId == null ? "Device" : "Camera " + scope.cameraId);
+    }
+    return sb.toDocument(MODE);
+  }
+
+  private static void appendChange(ReportBuilder sb, SnapshotDiff.Change change) {
+    if (change.key == null) {
+      // A whole camera
+      boolean added = change.kind == SnapshotDiff.Kind.ADDED;
+      Snapshot.Camera camera = (Snapshot.Camera) (added ? change.newValue : change.oldValue);
+      sb.field(added ? "Camera added" : "Camera removed", " : ", camera.values.size() + " keys");
+      return;
+    }
+    switch (change.kind) {
+      case ADDED:
+        sb.field("+ " + change.key, " : ", format(change.newValue));
+        break;
+      case REMOVED:
+        sb.field("- " + change.key, " : ", format(change.oldValue));
+        break;
+      default:
+        String summary =
+            SnapshotDiff.describeArrayChange(change.oldValue, change.newValue, MAX_ARRAY_ITEMS);
+        if (summary == null) {
+          summary = format(change.oldValue) + " -> " + format(change.newValue);
+        }
+        sb.field("~ " + change.key, " : ", summary);
+        break;
+    }
+  }
+
+  static String format(Object value) {
+    String text;
+    if (value instanceof int[]) {
+      text = Arrays.toString((int[]) value);
+    } else if (value instanceof long[]) {
+      text = Arrays.toString((long[]) value);
+    } else if (value instanceof float[]) {
+      text = Arrays.toString((float[]) value);
+    } else if (value instanceof Object[]) {
+      text = Arrays.toString((Object[]) value);
+    } else {
+      text = String.valueOf(value);
+    }
+    // Keep one line per key; very long values are cut
+    text = text.replace('\n', ' ');
+    return text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH) + "..." : text;
+  }
+}
@@ -0,0 +1,91 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.Arrays;
+
+/**
+ * Case-insensitive Boyer-Moore-Horspool search over the original text. Characters are compared
+ * through a folding table, so no lower-cased copy of the text is needed.
+ */
+public final class FoldedMatcher {
+
+  // Every char mapped to its lower case form, shared by all matchers and the search index
+  private static final char[] FOLD = new char[Character.MAX_VALUE + 1];
+
+  static {
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      FOLD[c] = Character.toLowerCase(Character.toUpperCase((char) c));
+    }
+  }
+
+  private static final int SHIFT_BUCKETS = 256;
+
+  private final char[] pattern;
+  // Skip distance per low byte of the folded char; colliding chars keep the smaller skip
+  private final int[] shift = new int[SHIFT_BUCKETS];
+
+  public FoldedMatcher(String query) {
+    pattern = fold(query).toCharArray();
+    Arrays.fill(shift, pattern.length);
+    for (int i = 0; i < pattern.length - 1; i++) {
+      shift[pattern[i] & (SHIFT_BUCKETS - 1)] = pattern.length - 1 - i;
+    }
+  }
+
+  public static char fold(char c) {
+    return FOLD[c];
+  }
+
+  public static String fold(String s) {
+    char[] folded = new char[s.length()];
+    for (int i = 0; i < folded.length; i++) folded[i] = FOLD[s.charAt(i)];
+    return new String(folded);
+  }
+
+  public int length() {
+    return pattern.length;
+  }
+
+  /** First match in text[from, to), or -1. */
+  public int indexIn(CharSequence text, int from, int to) {
+    int m = pattern.length;
+    if (m == 0) return -1;
+    int last = m - 1;
+    int i = Math.max(0, from);
+    while (i + m <= to) {
+      int j = last;
+      while (j >= 0 && FOLD[text.charAt(i + j)] == pattern[j]) j--;
+      if (j < 0) return i;
+      i += shift[FOLD[text.charAt(i + last)] & (SHIFT_BUCKETS - 1)];
+    }
+    return -1;
+  }
+
+  /** Whether text[start, start + length) equals the pattern, ignoring case. */
+  public boolean matchesAt(CharSequence text, int start) {
+    if (start < 0 || start + pattern.length > text.length()) return false;
+    for (int j = 0; j < pattern.length; j++) {
+      if (FOLD[text.charAt(start + j)] != pattern[j]) return false;
+    }
+    return true;
+  }
+
+  /** Every match in text order, overlapping ones included. */
+  public int[] findAll(CharSequence text) {
+    int[] found = new int[64];
+    int count = 0;
+    int index = indexIn(text, 0, text.length());
+    while (index >= 0) {
+      if (count == found.length) found = Arrays.copyOf(found, count * 2);
+      found[count++] = index;
+      index = indexIn(text, index + 1, text.length());
+    }
+    return Arrays.copyOf(found, count);
+  }
+}
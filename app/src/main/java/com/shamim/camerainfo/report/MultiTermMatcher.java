@@ -0,0 +1,197 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Case-insensitive search for several terms at once, such as
+ * {@code any:RAW10, RAW_SENSOR, DEPTH16}. The terms are compiled into an Aho-Corasick automaton,
+ * so the report is read once whatever the number of terms, and every match reports which term it
+ * belongs to.
+ */
+public final class MultiTermMatcher {
+
+  /** Marks a multi-term query, so values such as {@code [15, 30]} are still searched as is. */
+  public static final String PREFIX = "any:";
+
+  public static final char TERM_SEPARATOR = ',';
+
+  /** Matches in text order. Matches of different terms may overlap. */
+  public static final class Result {
+    public final int[] starts;
+    public final int[] lengths;
+    // Index of the term each match belongs to
+    public final int[] terms;
+    // Number of matches per term
+    public final int[] counts;
+
+    Result(int[] starts, int[] lengths, int[] terms, int[] counts) {
+      this.starts = starts;
+      this.lengths = lengths;
+      this.terms = terms;
+      this.counts = counts;
+    }
+  }
+
+  private final String[] terms;
+
+  // Folded chars used by the terms; every other char shares class 0
+  private final int[] asciiClasses = new int[128];
+  private final char[] wideChars;
+  private final int classCount;
+
+  // Complete transition table, classCount entries per state
+  private final int[] next;
+  // Term that ends in a state, or -1, and the next state down the failure chain that ends a term
+  private final int[] stateTerms;
+  private final int[] outputLinks;
+
+  private MultiTermMatcher(String[] terms) {
+    this.terms = terms;
+
+    StringBuilder alphabet = new StringBuilder();
+    int stateLimit = 1;
+    for (String term : terms) {
+      stateLimit += term.length();
+      for (int i = 0; i < term.length(); i++) {
+        char c = term.charAt(i);
+        if (alphabet.indexOf(String.valueOf(c)) < 0) alphabet.append(c);
+      }
+    }
+    char[] chars = alphabet.toString().toCharArray();
+    Arrays.sort(chars);
+    int wideCount = 0;
+    char[] wide = new char[chars.length];
+    int classes = 1;
+    for (char c : chars) {
+      if (c < 128) {
+        asciiClasses[c] = classes++;
+      } else {
+        wide[wideCount++] = c;
+      }
+    }
+    wideChars = Arrays.copyOf(wide, wideCount);
+    classCount = classes + wideCount;
+
+    next = new int[stateLimit * classCount];
+    Arrays.fill(next, -1);
+    stateTerms = new int[stateLimit];
+    Arrays.fill(stateTerms, -1);
+    outputLinks = new int[stateLimit];
+
+    // Trie of the terms
+    int states = 1;
+    for (int t = 0; t < terms.length; t++) {
+      int state = 0;
+      for (int i = 0; i < terms[t].length(); i++) {
+        int slot = state * classCount + classOf(terms[t].charAt(i));
+        if (next[slot] < 0) next[slot] = states++;
+        state = next[slot];
+      }
+      stateTerms[state] = t;
+    }
+
+    // Breadth first, fill the missing transitions from the failure states
+    int[] failures = new int[states];
+    int[] queue = new int[states];
+    int head = 0;
+    int tail = 0;
+    outputLinks[0] = -1;
+    for (int c = 0; c < classCount; c++) {
+      int child = next[c];
+      if (child < 0) {
+        next[c] = 0;
+      } else {
+        failures[child] = 0;
+        outputLinks[child] = -1;
+        queue[tail++] = child;
+      }
+    }
+    while (head < tail) {
+      int state = queue[head++];
+      for (int c = 0; c < classCount; c++) {
+        int slot = state * classCount + c;
+        int fallback = next[failures[state] * classCount + c];
+        int child = next[slot];
+        if (child < 0) {
+          next[slot] = fallback;
+          continue;
+        }
+        failures[child] = fallback;
+        outputLinks[child] = stateTerms[fallback] >= 0 ? fallback : outputLinks[fallback];
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  /**
+   * Compiles a query of comma separated terms after {@link #PREFIX}, or returns null if the query
+   * has no prefix or no terms. Terms are trimmed, so {@code "any:RAW10, DEPTH16"} has two terms.
+   */
+  public static MultiTermMatcher parse(String query) {
+    String trimmed = query.trim();
+    if (!trimmed.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) return null;
+    List<String> terms = new ArrayList<>();
+    String list = trimmed.substring(PREFIX.length());
+    for (String term : list.split(String.valueOf(TERM_SEPARATOR))) {
+      String folded = FoldedMatcher.fold(term.trim());
+      if (!folded.isEmpty() && !terms.contains(folded)) terms.add(folded);
+    }
+    return terms.isEmpty() ? null : new MultiTermMatcher(terms.toArray(new String[0]));
+  }
+
+  public int getTermCount() {
+    return terms.length;
+  }
+
+  /** Term in folded form. */
+  public String getTerm(int term) {
+    return terms[term];
+  }
+
+  private int classOf(char folded) {
+    if (folded < 128) return asciiClasses[folded];
+    int index = Arrays.binarySearch(wideChars, folded);
+    return index < 0 ? 0 : classCount - wideChars.length + index;
+  }
+
+  /** Finds every match of every term in one pass over the text. */
+  public Result find(CharSequence text) {
+    // Start in the high bits and term in the low bits, so one sort puts matches in text order
+    long[] found = new long[64];
+    int count = 0;
+    int[] counts = new int[terms.length];
+
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = next[state * classCount + classOf(FoldedMatcher.fold(text.charAt(i)))];
+      int output = stateTerms[state] >= 0 ? state : outputLinks[state];
+      while (output >= 0) {
+        int term = stateTerms[output];
+        if (count == found.length) found = Arrays.copyOf(found, count * 2);
+        found[count++] = ((long) (i + 1 - terms[term].length()) << 32) | term;
+        counts[term]++;
+        output = outputLinks[output];
+      }
+    }
+
+    Arrays.sort(found, 0, count);
+    int[] starts = new int[count];
+    int[] lengths = new int[count];
+    int[] matchTerms = new int[count];
+    for (int i = 0; i < count; i++) {
+      starts[i] = (int) (found[i] >>> 32);
+      matchTerms[i] = (int) found[i];
+      lengths[i] = terms[matchTerms[i]].length();
+    }
+    return new Result(starts, lengths, matchTerms, counts);
+  }
+}
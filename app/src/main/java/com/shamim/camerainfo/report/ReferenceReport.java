@@ -0,0 +1,92 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.snapshot.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.Locale;
+
+/**
+ * Compares this device with a {@link ReferenceDatabase}: a summary, this device's camera layout,
+ * the known devices of the same model and the devices with the closest layouts, with their
+ * distance (0 is the same layout).
+ */
+public final class ReferenceReport {
+
+  /** Mode of reference documents. It is not a log mode, so they never go into the report cache. */
+  public static final int MODE = -3;
+
+  private static final int MAX_SAME_MODEL = 20;
+  private static final int NEAREST = 10;
+
+  private ReferenceReport() {}
+
+  public static ReportDocument build(ReferenceDatabase database, Snapshot current)
+      throws SnapshotFormatException {
+    String model = String.valueOf(current.device.get("build.model"));
+    String fingerprint = String.valueOf(current.device.get("build.fingerprint"));
+    CameraLayout layout = CameraLayout.of(current);
+    int[] sameModel = database.findModel(model);
+    int sameFingerprint = database.findFingerprint(fingerprint);
+    ReferenceDatabase.Match[] nearest = database.nearest(layout, NEAREST);
+
+    ReportBuilder sb = new ReportBuilder();
+    sb.setExpectedSections(4);
+    sb.field("Devices in database", " : ", database.getDeviceCount());
+    sb.field("Model", " : ", model);
+    sb.field("Known devices of this model", " : ", sameModel.length);
+    sb.field("This build is known", " : ", sameFingerprint >= 0 ? "yes" : "no");
+    if (sameFingerprint >= 0) {
+      CameraLayout known = database.getDevice(sameFingerprint).layout;
+      sb.field("Same layout as known build", " : ", layout.distanceTo(known) == 0 ? "yes" : "no");
+    }
+    sb.append("\n=================================\n\n");
+    sb.endSection("Summary");
+
+    appendLayout(sb, layout);
+    sb.append("\n=================================\n\n");
+    sb.endSection("This device");
+
+    for (int i = 0; i < sameModel.length && i < MAX_SAME_MODEL; i++) {
+      if (i > 0) sb.append('\n');
+      ReferenceDatabase.Device device = database.getDevice(sameModel[i]);
+      sb.field("Fingerprint", " : ", device.fingerprint);
+      sb.field("Distance", " : ", format(layout.distanceTo(device.layout)));
+      appendLayout(sb, device.layout);
+    }
+    if (sameModel.length > MAX_SAME_MODEL) {
+      sb.append("\n... " + (sameModel.length - MAX_SAME_MODEL) + " more\n");
+    } else if (sameModel.length == 0) {
+      sb.append("No known device of this model\n");
+    }
+    sb.append("\n=================================\n\n");
+    sb.endSection("Same model");
+
+    for (int i = 0; i < nearest.length; i++) {
+      if (i > 0) sb.append('\n');
+      ReferenceDatabase.Match match = nearest[i];
+      ReferenceDatabase.Device device = database.getDevice(match.index);
+      String name = device.soc.isEmpty() ? device.model : device.model + " · " + device.soc;
+      sb.field("Model", " : ", name);
+      sb.field("Distance", " : ", format(match.distance));
+      appendLayout(sb, device.layout);
+    }
+    sb.append("\n=================================\n\n");
+    sb.endSection("Nearest devices");
+    return sb.toDocument(MODE);
+  }
+
+  private static void appendLayout(ReportBuilder sb, CameraLayout layout) {
+    for (int c = 0; c < layout.getCameraCount(); c++) {
+      sb.field("Camera " + c, " : ", layout.describeCamera(c));
+    }
+  }
+
+  private static String format(double distance) {
+    return String.format(Locale.US, "%.2f", distance);
+  }
+}
@@ -0,0 +1,298 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.Arrays;
+
+/**
+ * Text writer for reports that records where every {@code key = value} line sits while it is
+ * written. Each field is stored as three offsets into the text: key start, separator and value
+ * end. The key runs up to the separator and the value runs from the character after it.
+ *
+ * <p>Generators also mark section boundaries (device info, camera list, one per camera) so the
+ * report can be published to the UI section by section. The start of every line is recorded too,
+ * so offsets can be mapped to lines without laying the text out.
+ */
+public class ReportBuilder {
+
+  public static final int FIELD_KEY_START = 0;
+  public static final int FIELD_SEPARATOR = 1;
+  public static final int FIELD_VALUE_END = 2;
+  public static final int FIELD_STRIDE = 3;
+
+  /**
+   * Called on the generating thread each time a section is completed. expectedSections is 0 while
+   * the generator does not know the total yet.
+   */
+  public interface SectionListener {
+    void onSectionComplete(ReportSection section, int expectedSections);
+  }
+
+  private final StringBuilder text;
+  private int[] fields = new int[FIELD_STRIDE * 256];
+  private int fieldCount = 0;
+
+  // Offset of every line start, recorded as text is written
+  private int[] lineStarts = new int[1024];
+  private int lineCount = 1;
+
+  private int[] sectionEnds = new int[16];
+  private int[] sectionFieldEnds = new int[16];
+  private String[] sectionLabels = new String[16];
+  private int sectionCount = 0;
+  private int expectedSections = 0;
+  private SectionListener sectionListener;
+
+  // Sections handed to the listener and then dropped: their length and field count
+  private boolean retainSections = true;
+  private int droppedLength = 0;
+  private int droppedFields = 0;
+
+  public ReportBuilder() {
+    this(16 * 1024);
+  }
+
+  public ReportBuilder(int capacity) {
+    text = new StringBuilder(capacity);
+  }
+
+  /** Writes {@code key = value} as one field followed by a line break. */
+  public ReportBuilder field(String key, Object value) {
+    return field(key, " = ", value);
+  }
+
+  /**
+   * Writes a field with a custom separator such as {@code " : "}. The first non-space character
+   * of the separator is the one that gets the separator color.
+   */
+  public ReportBuilder field(String key, String separator, Object value) {
+    int keyStart = text.length();
+    text.append(key);
+
+    int separatorOffset = text.length();
+    for (int i = 0; i < separator.length(); i++) {
+      if (separator.charAt(i) != ' ') {
+        separatorOffset += i;
+        break;
+      }
+    }
+    text.append(separator).append(value);
+
+    addField(keyStart, separatorOffset, text.length());
+    text.append('\n');
+    trackLines(keyStart);
+    return this;
+  }
+
+  /** Appends text that contains no fields, such as dividers and blank lines. */
+  public ReportBuilder append(CharSequence plain) {
+    int start = text.length();
+    text.append(plain);
+    trackLines(start);
+    return this;
+  }
+
+  public ReportBuilder append(char c) {
+    text.append(c);
+    if (c == '\n') addLine(text.length());
+    return this;
+  }
+
+  /**
+   * Appends preformatted lines from one of the formatters and records a field for every line that
+   * has a separator. The separator is the first {@code '='} or {@code ':'} followed by a space or
+   * the end of the line, so values like {@code 10:30} or {@code a=b} stay inside the value.
+   */
+  public ReportBuilder appendParsed(CharSequence chunk) {
+    int start = text.length();
+    text.append(chunk);
+    int end = text.length();
+
+    int lineStart = start;
+    for (int i = start; i <= end; i++) {
+      if (i < end && text.charAt(i) != '\n') continue;
+      recordParsedLine(lineStart, i);
+      if (i < end) addLine(i + 1);
+      lineStart = i + 1;
+    }
+    return this;
+  }
+
+  private void trackLines(int from) {
+    for (int i = from; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') addLine(i + 1);
+    }
+  }
+
+  private void addLine(int start) {
+    if (lineCount == lineStarts.length) {
+      lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+    }
+    lineStarts[lineCount++] = start;
+  }
+
+  private void recordParsedLine(int lineStart, int lineEnd) {
+    if (lineStart >= lineEnd || isDivider(lineStart, lineEnd)) return;
+
+    int firstSeparator = -1;
+    for (int i = lineStart; i < lineEnd; i++) {
+      char c = text.charAt(i);
+      if (c != '=' && c != ':') continue;
+      if (firstSeparator < 0) firstSeparator = i;
+      if (i + 1 == lineEnd || text.charAt(i + 1) == ' ') {
+        addField(lineStart, i, lineEnd);
+        return;
+      }
+    }
+    if (firstSeparator >= 0) {
+      addField(lineStart, firstSeparator, lineEnd);
+    }
+  }
+
+  private boolean isDivider(int lineStart, int lineEnd) {
+    for (int i = lineStart; i < lineEnd; i++) {
+      char c = text.charAt(i);
+      if (c != '=' && c != '-' && c != ' ') return false;
+    }
+    return true;
+  }
+
+  private void addField(int keyStart, int separator, int valueEnd) {
+    int index = fieldCount * FIELD_STRIDE;
+    if (index + FIELD_STRIDE > fields.length) {
+      fields = Arrays.copyOf(fields, fields.length * 2);
+    }
+    fields[index + FIELD_KEY_START] = keyStart;
+    fields[index + FIELD_SEPARATOR] = separator;
+    fields[index + FIELD_VALUE_END] = valueEnd;
+    fieldCount++;
+  }
+
+  public void setSectionListener(SectionListener listener) {
+    sectionListener = listener;
+  }
+
+  /**
+   * With retain false, a completed section's text, fields and lines are dropped once the listener
+   * has seen it, so a report streamed elsewhere is never held whole. {@link #toDocument} is then
+   * unavailable.
+   */
+  public void setRetainSections(boolean retain) {
+    retainSections = retain;
+  }
+
+  /** Total number of sections the generator expects to write, or 0 if not known yet. */
+  public void setExpectedSections(int expected) {
+    expectedSections = expected;
+  }
+
+  public int getExpectedSections() {
+    return expectedSections;
+  }
+
+  /** Closes the section that started where the previous one ended. Empty sections are skipped. */
+  public void endSection(String label) {
+    int start = getSectionEnd(sectionCount - 1);
+    int end = length();
+    if (end == start) return;
+
+    if (sectionCount == sectionEnds.length) {
+      int size = sectionCount * 2;
+      sectionEnds = Arrays.copyOf(sectionEnds, size);
+      sectionFieldEnds = Arrays.copyOf(sectionFieldEnds, size);
+      sectionLabels = Arrays.copyOf(sectionLabels, size);
+    }
+    int firstField = getSectionFieldEnd(sectionCount - 1) - droppedFields;
+    sectionEnds[sectionCount] = end;
+    sectionFieldEnds[sectionCount] = droppedFields + fieldCount;
+    sectionLabels[sectionCount] = label;
+    sectionCount++;
+
+    if (sectionListener != null) {
+      sectionListener.onSectionComplete(
+          createSection(sectionCount - 1, start, firstField), expectedSections);
+    }
+    if (!retainSections) {
+      // Everything written so far belongs to completed sections
+      droppedLength = end;
+      droppedFields += fieldCount;
+      text.setLength(0);
+      fieldCount = 0;
+      lineCount = 1;
+    }
+  }
+
+  private ReportSection createSection(int index, int start, int firstField) {
+    int localStart = start - droppedLength;
+    int count = fieldCount - firstField;
+    int[] local = new int[count * FIELD_STRIDE];
+    for (int i = 0; i < local.length; i++) {
+      local[i] = fields[firstField * FIELD_STRIDE + i] - localStart;
+    }
+    return new ReportSection(
+        index, sectionLabels[index], start, text.substring(localStart), local, count);
+  }
+
+  public int getSectionCount() {
+    return sectionCount;
+  }
+
+  public int getSectionEnd(int section) {
+    return section < 0 ? 0 : sectionEnds[section];
+  }
+
+  public int getSectionFieldEnd(int section) {
+    return section < 0 ? 0 : sectionFieldEnds[section];
+  }
+
+  public String getSectionLabel(int section) {
+    return sectionLabels[section];
+  }
+
+  /** Text written from start on, without copying what came before it. */
+  public String substring(int start) {
+    return text.substring(start - droppedLength);
+  }
+
+  public int length() {
+    return droppedLength + text.length();
+  }
+
+  public boolean isEmpty() {
+    return length() == 0;
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /** Field offsets, {@link #FIELD_STRIDE} ints per field. Only the first fieldCount are valid. */
+  public int[] getFields() {
+    return fields;
+  }
+
+  /** Freezes what was written so far into a document that can be cached and shown again. */
+  public ReportDocument toDocument(int mode) {
+    if (!retainSections) throw new IllegalStateException("Sections are not retained");
+    return new ReportDocument(
+        mode,
+        text.toString(),
+        Arrays.copyOf(fields, fieldCount * FIELD_STRIDE),
+        fieldCount,
+        Arrays.copyOf(sectionEnds, sectionCount),
+        Arrays.copyOf(sectionFieldEnds, sectionCount),
+        Arrays.copyOf(sectionLabels, sectionCount),
+        sectionCount,
+        Arrays.copyOf(lineStarts, lineCount));
+  }
+
+  @Override
+  public String toString() {
+    return text.toString();
+  }
+}
@@ -0,0 +1,28 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Process-wide cache of generated reports, one per log mode. Survives Activity recreation. */
+public class ReportCache {
+  private static final Map<Integer, ReportDocument> cache = new HashMap<>();
+
+  public static synchronized ReportDocument get(int mode) {
+    return cache.get(mode);
+  }
+
+  public static synchronized void put(ReportDocument document) {
+    cache.put(document.mode, document);
+  }
+
+  public static synchronized void clear() {
+    cache.clear();
+  }
+}
@@ -0,0 +1,195 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.Arrays;
+
+/**
+ * A generated report: its plain text, field offsets and section boundaries. It also keeps the
+ * colored section texts and block splits it was shown with, so an Activity that is recreated can
+ * bind it again without regenerating anything. The colors are palette roles, so the rendered
+ * sections stay valid across theme changes.
+ */
+public class ReportDocument {
+
+  public final int mode;
+  public final String text;
+
+  private final int[] fields;
+  private final int fieldCount;
+  private final int[] sectionEnds;
+  private final int[] sectionFieldEnds;
+  private final String[] sectionLabels;
+  private final int sectionCount;
+  private final int[] lineStarts;
+
+  private final Object searchIndexLock = new Object();
+  private volatile ReportSearchIndex searchIndex;
+  private final Object fieldIndexLock = new Object();
+  private ReportFieldIndex fieldIndex;
+  private CharSequence[] renderedSections;
+  private int[][] renderedBlockStarts;
+
+  ReportDocument(
+      int mode,
+      String text,
+      int[] fields,
+      int fieldCount,
+      int[] sectionEnds,
+      int[] sectionFieldEnds,
+      String[] sectionLabels,
+      int sectionCount,
+      int[] lineStarts) {
+    this.mode = mode;
+    this.text = text;
+    this.fields = fields;
+    this.fieldCount = fieldCount;
+    this.sectionEnds = sectionEnds;
+    this.sectionFieldEnds = sectionFieldEnds;
+    this.sectionLabels = sectionLabels;
+    this.sectionCount = sectionCount;
+    this.lineStarts = lineStarts;
+  }
+
+  public int getSectionCount() {
+    return sectionCount;
+  }
+
+  public int getSectionStart(int section) {
+    return section == 0 ? 0 : sectionEnds[section - 1];
+  }
+
+  public int getSectionEnd(int section) {
+    return sectionEnds[section];
+  }
+
+  public String getSectionLabel(int section) {
+    return sectionLabels[section];
+  }
+
+  /** Line that contains a text offset. */
+  public int lineForOffset(int offset) {
+    int line = Arrays.binarySearch(lineStarts, offset);
+    return line >= 0 ? line : Math.max(0, -line - 2);
+  }
+
+  /** Section that contains a text offset. */
+  public int sectionForOffset(int offset) {
+    int section = Arrays.binarySearch(sectionEnds, 0, sectionCount, offset);
+    // A section end is the start of the next section
+    section = section >= 0 ? section + 1 : -section - 1;
+    return Math.min(section, sectionCount - 1);
+  }
+
+  /** Index of the first field of a section. */
+  public int getSectionFieldStart(int section) {
+    return section == 0 ? 0 : sectionFieldEnds[section - 1];
+  }
+
+  /** Index after the last field of a section. */
+  public int getSectionFieldEnd(int section) {
+    return sectionFieldEnds[section];
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  public int[] getFields() {
+    return fields;
+  }
+
+  /** Copies one section out with field offsets relative to it. */
+  public ReportSection getSection(int section) {
+    int start = getSectionStart(section);
+    int firstField = getSectionFieldStart(section);
+    int count = sectionFieldEnds[section] - firstField;
+    int[] local = new int[count * ReportBuilder.FIELD_STRIDE];
+    for (int i = 0; i < local.length; i++) {
+      local[i] = fields[firstField * ReportBuilder.FIELD_STRIDE + i] - start;
+    }
+    return new ReportSection(
+        section,
+        sectionLabels[section],
+        start,
+        text.substring(start, sectionEnds[section]),
+        local,
+        count);
+  }
+
+  /**
+   * One section as a document of its own, with offsets relative to the section, so it can be
+   * shown and searched alone.
+   */
+  public ReportDocument getSectionDocument(int section) {
+    ReportSection copy = getSection(section);
+    int end = sectionEnds[section];
+    int firstLine = lineForOffset(copy.start);
+    int lastLine = firstLine;
+    while (lastLine + 1 < lineStarts.length && lineStarts[lastLine + 1] < end) lastLine++;
+    int[] lines = new int[lastLine - firstLine + 1];
+    for (int i = 1; i < lines.length; i++) {
+      lines[i] = lineStarts[firstLine + i] - copy.start;
+    }
+    return new ReportDocument(
+        mode,
+        copy.text,
+        copy.fields,
+        copy.fieldCount,
+        new int[] {copy.text.length()},
+        new int[] {copy.fieldCount},
+        new String[] {copy.label},
+        1,
+        lines);
+  }
+
+  /**
+   * Case-insensitive search index over the text, built on first use. Building takes a while, so
+   * prebuild it on a background thread; it has its own lock and does not block binding.
+   */
+  public ReportSearchIndex getSearchIndex() {
+    synchronized (searchIndexLock) {
+      if (searchIndex == null) {
+        searchIndex = ReportSearchIndex.build(text);
+      }
+      return searchIndex;
+    }
+  }
+
+  /** The search index if it has been built, without waiting for it. */
+  public ReportSearchIndex getSearchIndexIfBuilt() {
+    return searchIndex;
+  }
+
+  /** Per-field model for structured queries, built on first use like the search index. */
+  public ReportFieldIndex getFieldIndex() {
+    synchronized (fieldIndexLock) {
+      if (fieldIndex == null) {
+        fieldIndex = ReportFieldIndex.build(this);
+      }
+      return fieldIndex;
+    }
+  }
+
+  public synchronized boolean isRendered() {
+    return renderedSections != null;
+  }
+
+  public synchronized void setRendered(CharSequence[] sections, int[][] blockStarts) {
+    renderedSections = sections;
+    renderedBlockStarts = blockStarts;
+  }
+
+  public synchronized CharSequence getRenderedSection(int section) {
+    return renderedSections[section];
+  }
+
+  public synchronized int[] getRenderedBlockStarts(int section) {
+    return renderedBlockStarts[section];
+  }
+}
@@ -0,0 +1,389 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.snapshot.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes reports to files on a background thread. Text is streamed section by section through a
+ * buffered UTF-8 writer, so no full copy of the report is made, and the target file only appears
+ * once it is complete.
+ *
+ * <p>The ZIP export writes one entry per section label ({@code device.txt}, {@code camera_0.txt},
+ * ...), then {@code camcorder.txt} unless the report already holds the camcorder profiles, and a
+ * {@code manifest.txt} listing the entries.
+ */
+public final class ReportExporter {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  public static final String ZIP_FORMAT = "camerainfo-zip/1";
+  public static final String CAMCORDER_LABEL = "Camcorder";
+  private static final String MANIFEST_ENTRY = "manifest.txt";
+
+  // Share of the ZIP progress taken by the report; the camcorder matrix takes the rest
+  private static final int REPORT_PERCENT = 90;
+
+  /** Called on the exporting thread whenever the percentage changes. */
+  public interface ProgressListener {
+    void onProgress(int percent);
+  }
+
+  /** Writes a report into a {@link ReportBuilder}, for example {@code appendReport}. */
+  public interface Generator {
+    void generate(ReportBuilder report);
+  }
+
+  private ReportExporter() {}
+
+  /** Writes a finished report as UTF-8 text. */
+  public static void writeText(ReportDocument document, File file, ProgressListener progress)
+      throws IOException {
+    File partial = partialFile(file);
+    try (Writer writer = openWriter(partial)) {
+      int written = 0;
+      int lastPercent = -1;
+      int length = document.text.length();
+      for (int section = 0; section <= document.getSectionCount(); section++) {
+        // One pass past the last section writes any text that follows it
+        int end = section < document.getSectionCount() ? document.getSectionEnd(section) : length;
+        writer.write(document.text, written, end - written);
+        written = end;
+        lastPercent = report(progress, length == 0 ? 100 : 100L * written / length, lastPercent);
+      }
+    }
+    commit(partial, file);
+  }
+
+  /**
+   * Generates a report and writes each section as soon as the generator completes it, instead of
+   * waiting for the whole report. Returns the generated document so it can be cached.
+   *
+   * <p>The builder deliberately keeps the full text in memory: it becomes the returned document,
+   * which the caller caches for viewing, so no extra copy is made.
+   */
+  public static ReportDocument generateText(
+      int mode, Generator generator, File file, ProgressListener progress) throws IOException {
+    File partial = partialFile(file);
+    ReportDocument document;
+    try (Writer writer = openWriter(partial)) {
+      ReportBuilder report = new ReportBuilder();
+      int[] lastPercent = {-1};
+      report.setSectionListener(
+          (section, expectedSections) -> {
+            try {
+              writer.write(section.text);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            if (expectedSections > 0) {
+              long percent = 100L * (section.index + 1) / expectedSections;
+              lastPercent[0] = report(progress, Math.min(99, percent), lastPercent[0]);
+            }
+          });
+      try {
+        generator.generate(report);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+
+      document = report.toDocument(mode);
+      int sections = document.getSectionCount();
+      int tail = sections > 0 ? document.getSectionEnd(sections - 1) : 0;
+      writer.write(document.text, tail, document.text.length() - tail);
+      report(progress, 100, lastPercent[0]);
+    }
+    commit(partial, file);
+    return document;
+  }
+
+  /**
+   * Writes a finished report as a ZIP, one entry per section label, followed by the camcorder
+   * matrix from camcorder and the manifest. camcorder may be null when the report already holds
+   * the camcorder profiles. level is a {@link java.util.zip.Deflater} level.
+   */
+  public static void writeZip(
+      ReportDocument document,
+      Generator camcorder,
+      File file,
+      int level,
+      Map<String, String> manifest,
+      ProgressListener progress)
+      throws IOException {
+    File partial = partialFile(file);
+    try (ZipSections zip = new ZipSections(partial, level)) {
+      int length = document.text.length();
+      int written = 0;
+      int lastPercent = -1;
+      for (int section = 0; section < document.getSectionCount(); section++) {
+        int end = document.getSectionEnd(section);
+        zip.write(document.getSectionLabel(section), document.text, written, end);
+        written = end;
+        long percent = REPORT_PERCENT * (long) written / Math.max(1, length);
+        lastPercent = report(progress, percent, lastPercent);
+      }
+      zip.write(null, document.text, written, length);
+      finishZip(zip, camcorder, manifest, progress, lastPercent);
+    }
+    commit(partial, file);
+  }
+
+  /**
+   * Generates a report straight into a ZIP: each section is compressed into its entry as soon as
+   * the generator completes it and then dropped, so the whole report is never in memory. Nothing
+   * is cached; the viewer generates its own document.
+   */
+  public static void generateZip(
+      Generator generator,
+      Generator camcorder,
+      File file,
+      int level,
+      Map<String, String> manifest,
+      ProgressListener progress)
+      throws IOException {
+    File partial = partialFile(file);
+    try (ZipSections zip = new ZipSections(partial, level)) {
+      int[] lastPercent = {-1};
+      streamSections(
+          generator,
+          zip,
+          (done, expected) -> {
+            long percent = REPORT_PERCENT * (long) done / expected;
+            lastPercent[0] = report(progress, percent, lastPercent[0]);
+          });
+      finishZip(zip, camcorder, manifest, progress, lastPercent[0]);
+    }
+    commit(partial, file);
+  }
+
+  /**
+   * Writes the reports of several modes as one ZIP: one entry per report, named after its label in
+   * labels, followed by the manifest.
+   */
+  public static void writeBundle(
+      List<ReportDocument> documents,
+      List<String> labels,
+      File file,
+      int level,
+      Map<String, String> manifest,
+      ProgressListener progress)
+      throws IOException {
+    long total = 0;
+    for (ReportDocument document : documents) total += document.text.length();
+    File partial = partialFile(file);
+    try (ZipSections zip = new ZipSections(partial, level)) {
+      long written = 0;
+      int lastPercent = -1;
+      for (int i = 0; i < documents.size(); i++) {
+        ReportDocument document = documents.get(i);
+        int start = 0;
+        for (int section = 0; section <= document.getSectionCount(); section++) {
+          int end =
+              section < document.getSectionCount()
+                  ? document.getSectionEnd(section)
+                  : document.text.length();
+          zip.write(labels.get(i), document.text, start, end);
+          written += end - start;
+          start = end;
+          lastPercent = report(progress, 99 * written / Math.max(1, total), lastPercent);
+        }
+      }
+      zip.writeManifest(manifest);
+      report(progress, 100, lastPercent);
+    }
+    commit(partial, file);
+  }
+
+  private interface SectionProgress {
+    void onSections(int done, int expected);
+  }
+
+  /**
+   * Runs a generator with every completed section written to the ZIP entry of its label and then
+   * dropped from the builder.
+   */
+  private static void streamSections(
+      Generator generator, ZipSections zip, SectionProgress progress) throws IOException {
+    ReportBuilder report = new ReportBuilder();
+    report.setRetainSections(false);
+    report.setSectionListener(
+        (section, expectedSections) -> {
+          try {
+            zip.write(section.label, section.text, 0, section.text.length());
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          if (expectedSections > 0) progress.onSections(section.index + 1, expectedSections);
+        });
+    try {
+      generator.generate(report);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    // Text after the last section stays in the last entry
+    String tail = report.substring(report.getSectionEnd(report.getSectionCount() - 1));
+    zip.write(null, tail, 0, tail.length());
+  }
+
+  private static void finishZip(
+      ZipSections zip,
+      Generator camcorder,
+      Map<String, String> manifest,
+      ProgressListener progress,
+      int lastPercent)
+      throws IOException {
+    int[] percent = {lastPercent};
+    if (camcorder != null) {
+      streamSections(
+          camcorder,
+          zip,
+          (done, expected) -> {
+            long value = REPORT_PERCENT + (99 - REPORT_PERCENT) * (long) done / expected;
+            percent[0] = report(progress, value, percent[0]);
+          });
+    }
+    zip.writeManifest(manifest);
+    report(progress, 100, percent[0]);
+  }
+
+  /** ZIP entry name for a section label, for example {@code "Camera 0"} to camera_0.txt. */
+  static String entryName(String label) {
+    String name = label.toLowerCase(Locale.US).replaceAll("[^a-z0-9]+", "_");
+    return (name.isEmpty() ? "report" : name) + ".txt";
+  }
+
+  /** Writes sections into ZIP entries, starting a new entry whenever the label changes. */
+  private static final class ZipSections implements Closeable {
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final List<ZipEntry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private String label;
+
+    ZipSections(File file, int level) throws IOException {
+      zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+      zip.setLevel(level);
+      writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+    }
+
+    /** Writes text[start, end) into the entry of label, or the current entry if label is null. */
+    void write(String label, String text, int start, int end) throws IOException {
+      if (start >= end) return;
+      if (label == null && this.label == null) label = "Report";
+      if (label != null && !label.equals(this.label)) startEntry(label);
+      writer.write(text, start, end - start);
+    }
+
+    private void startEntry(String label) throws IOException {
+      closeEntry();
+      String name = entryName(label);
+      // Labels are unique per report, but two could still map to one name
+      for (int i = 2; !names.add(name); i++) name = entryName(label + " " + i);
+      ZipEntry entry = new ZipEntry(name);
+      zip.putNextEntry(entry);
+      entries.add(entry);
+      this.label = label;
+    }
+
+    private void closeEntry() throws IOException {
+      if (label == null) return;
+      writer.flush();
+      zip.closeEntry();
+      label = null;
+    }
+
+    /** Closes the last entry and writes the manifest, which lists all entries and sizes. */
+    void writeManifest(Map<String, String> manifest) throws IOException {
+      closeEntry();
+      zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+      writer.write("format = " + ZIP_FORMAT + "\n");
+      for (Map.Entry<String, String> field : manifest.entrySet()) {
+        writer.write(field.getKey() + " = " + field.getValue() + "\n");
+      }
+      writer.write("entries = " + entries.size() + "\n");
+      for (ZipEntry entry : entries) {
+        writer.write(entry.getName() + " = " + entry.getSize() + " bytes\n");
+      }
+      writer.flush();
+      zip.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  /** Writes a binary camera snapshot, see {@link SnapshotWriter}. */
+  public static void writeSnapshot(Snapshot snapshot, File file) throws IOException {
+    File partial = partialFile(file);
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(partial), BUFFER_SIZE)) {
+      SnapshotWriter.write(snapshot, out);
+    }
+    commit(partial, file);
+  }
+
+  /** Streams a snapshot file as JSON, see {@link SnapshotJson}. Cameras are decoded one by one. */
+  public static void writeJson(File snapshotFile, File file) throws IOException {
+    SnapshotReader reader;
+    try (InputStream in = new FileInputStream(snapshotFile)) {
+      reader = SnapshotReader.read(in);
+    }
+    File partial = partialFile(file);
+    try (Writer out = openWriter(partial)) {
+      SnapshotJson.write(reader, out);
+    }
+    commit(partial, file);
+  }
+
+  static Writer openWriter(File file) throws IOException {
+    return new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  static File partialFile(File file) {
+    return new File(file.getPath() + ".part");
+  }
+
+  /** Replaces the target with the fully written file. */
+  static void commit(File partial, File file) throws IOException {
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Cannot replace " + file);
+    }
+    if (!partial.renameTo(file)) {
+      throw new IOException("Cannot rename " + partial + " to " + file);
+    }
+  }
+
+  static int report(ProgressListener progress, long percent, int lastPercent) {
+    if (progress != null && percent != lastPercent) progress.onProgress((int) percent);
+    return (int) percent;
+  }
+}
@@ -0,0 +1,158 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column model of a report's {@code key = value} fields for structured queries. Every field has a
+ * key id into a dictionary of distinct keys, the first number in its value and the camera whose
+ * section it is in. Cameras carry their facing and lens type, taken from their own fields.
+ */
+public class ReportFieldIndex {
+
+  private static final String CAMERA_SECTION_PREFIX = "Camera ";
+  private static final String CAMERA_LIST_SECTION = "Camera IDs";
+
+  final ReportDocument document;
+  final String[] keys;
+  final int[] fieldKeys;
+  final double[] fieldNumbers;
+  final int[] fieldCameras;
+  final String[] cameraIds;
+  final String[] cameraFacings;
+  final String[] cameraTypes;
+
+  private ReportFieldIndex(
+      ReportDocument document,
+      String[] keys,
+      int[] fieldKeys,
+      double[] fieldNumbers,
+      int[] fieldCameras,
+      String[] cameraIds,
+      String[] cameraFacings,
+      String[] cameraTypes) {
+    this.document = document;
+    this.keys = keys;
+    this.fieldKeys = fieldKeys;
+    this.fieldNumbers = fieldNumbers;
+    this.fieldCameras = fieldCameras;
+    this.cameraIds = cameraIds;
+    this.cameraFacings = cameraFacings;
+    this.cameraTypes = cameraTypes;
+  }
+
+  /** Builds the model in one pass over the recorded fields. Call off the main thread. */
+  public static ReportFieldIndex build(ReportDocument document) {
+    String text = document.text;
+    int[] fields = document.getFields();
+    int fieldCount = document.getFieldCount();
+
+    Map<String, Integer> keyIds = new HashMap<>();
+    List<String> keys = new ArrayList<>();
+    int[] fieldKeys = new int[fieldCount];
+    double[] fieldNumbers = new double[fieldCount];
+    int[] fieldCameras = new int[fieldCount];
+    List<String> cameraIds = new ArrayList<>();
+    List<String> cameraFacings = new ArrayList<>();
+    List<String> cameraTypes = new ArrayList<>();
+
+    for (int section = 0; section < document.getSectionCount(); section++) {
+      String label = document.getSectionLabel(section);
+      int camera = -1;
+      if (label.startsWith(CAMERA_SECTION_PREFIX) && !label.equals(CAMERA_LIST_SECTION)) {
+        camera = cameraIds.size();
+        cameraIds.add(label.substring(CAMERA_SECTION_PREFIX.length()));
+        cameraFacings.add("");
+        cameraTypes.add("");
+      }
+
+      for (int i = document.getSectionFieldStart(section);
+          i < document.getSectionFieldEnd(section);
+          i++) {
+        int index = i * ReportBuilder.FIELD_STRIDE;
+        int separator = fields[index + ReportBuilder.FIELD_SEPARATOR];
+        int valueEnd = fields[index + ReportBuilder.FIELD_VALUE_END];
+        String key =
+            text.substring(fields[index + ReportBuilder.FIELD_KEY_START], separator)
+                .trim()
+                .toLowerCase(Locale.US);
+
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+          keyId = keys.size();
+          keyIds.put(key, keyId);
+          keys.add(key);
+        }
+        fieldKeys[i] = keyId;
+        fieldNumbers[i] = parseFirstNumber(text, separator + 1, valueEnd);
+        fieldCameras[i] = camera;
+
+        if (camera >= 0 && (key.equals("facing") || key.equals("type"))) {
+          String value = text.substring(separator + 1, valueEnd).trim().toLowerCase(Locale.US);
+          (key.equals("facing") ? cameraFacings : cameraTypes).set(camera, value);
+        }
+      }
+    }
+
+    return new ReportFieldIndex(
+        document,
+        keys.toArray(new String[0]),
+        fieldKeys,
+        fieldNumbers,
+        fieldCameras,
+        cameraIds.toArray(new String[0]),
+        cameraFacings.toArray(new String[0]),
+        cameraTypes.toArray(new String[0]));
+  }
+
+  /** First decimal number in text[start, end), or NaN if there is none. */
+  static double parseFirstNumber(String text, int start, int end) {
+    int i = start;
+    while (i < end && !Character.isDigit(text.charAt(i))) i++;
+    if (i == end) return Double.NaN;
+
+    int numberStart = i > start && text.charAt(i - 1) == '-' ? i - 1 : i;
+    boolean dot = false;
+    while (i < end) {
+      char c = text.charAt(i);
+      if (c == '.' && !dot && i + 1 < end && Character.isDigit(text.charAt(i + 1))) {
+        dot = true;
+      } else if (!Character.isDigit(c)) {
+        break;
+      }
+      i++;
+    }
+    try {
+      return Double.parseDouble(text.substring(numberStart, i));
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  public int getFieldCount() {
+    return fieldKeys.length;
+  }
+
+  /** Text offset where a field's line starts. */
+  public int getFieldStart(int field) {
+    return document.getFields()[field * ReportBuilder.FIELD_STRIDE + ReportBuilder.FIELD_KEY_START];
+  }
+
+  /** Length of a field's line, key through value. */
+  public int getFieldLength(int field) {
+    int index = field * ReportBuilder.FIELD_STRIDE;
+    int[] fields = document.getFields();
+    return fields[index + ReportBuilder.FIELD_VALUE_END]
+        - fields[index + ReportBuilder.FIELD_KEY_START];
+  }
+}
@@ -0,0 +1,202 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.snapshot.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Opens a report exported on another device, either as text or as a binary snapshot, and writes
+ * it into a {@link ReportBuilder} section by section. The input is streamed, so the first section
+ * can be shown while the rest of the file is still being read.
+ *
+ * <p>Use {@link #generate} as a {@link ReportExporter.Generator}; read errors are rethrown as
+ * {@link UncheckedIOException}.
+ */
+public final class ReportImporter {
+
+  /** Mode of imported documents. It is not a log mode, so they never go into the report cache. */
+  public static final int MODE = -2;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // Files without section dividers are still published in pieces of about this many chars
+  private static final int MAX_SECTION_LENGTH = 256 * 1024;
+
+  /** Opens the file to import, on the generating thread. */
+  public interface Source {
+    InputStream open() throws IOException;
+  }
+
+  private final Source source;
+  private volatile SnapshotReader snapshotReader;
+
+  public ReportImporter(Source source) {
+    this.source = source;
+  }
+
+  /** Reads the whole input into report. */
+  public void generate(ReportBuilder report) {
+    try (InputStream in = new BufferedInputStream(source.open(), BUFFER_SIZE)) {
+      if (SnapshotReader.hasMagic(in)) {
+        SnapshotReader reader = SnapshotReader.read(in);
+        appendSnapshot(reader, report);
+        snapshotReader = reader;
+      } else {
+        appendText(new InputStreamReader(in, StandardCharsets.UTF_8), report);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The imported camera model for diffs, built on first use: the typed values for a binary
+   * snapshot, otherwise the fields of the device and camera sections of document as strings.
+   */
+  public Snapshot getSnapshot(ReportDocument document) throws IOException {
+    SnapshotReader reader = snapshotReader;
+    return reader != null ? reader.readAll() : toSnapshot(document);
+  }
+
+  /**
+   * Splits exported text into sections. A section ends at the blank line after a divider, as
+   * written by the generators; camera sections are labeled from their CameraID field, and text
+   * between them keeps the label of the section before it.
+   */
+  static void appendText(Reader in, ReportBuilder report) throws IOException {
+    BufferedReader lines = new BufferedReader(in, BUFFER_SIZE);
+    StringBuilder section = new StringBuilder();
+    String label = "Device";
+    String sectionLabel = null;
+    boolean labeled = false;
+    boolean afterDivider = false;
+    for (String line; (line = lines.readLine()) != null; ) {
+      // The first field of a section decides its label
+      if (!labeled && separatorOf(line) >= 0) {
+        sectionLabel = labelOf(line);
+        labeled = true;
+      }
+      section.append(line).append('\n');
+      boolean end = line.isEmpty() && afterDivider;
+      if (end || section.length() >= MAX_SECTION_LENGTH) {
+        if (sectionLabel != null) label = sectionLabel;
+        report.appendParsed(section);
+        report.endSection(label);
+        section.setLength(0);
+        sectionLabel = null;
+        labeled = false;
+      }
+      afterDivider = isDivider(line);
+    }
+    if (section.length() > 0) {
+      report.appendParsed(section);
+      report.endSection(sectionLabel != null ? sectionLabel : label);
+    }
+  }
+
+  /** Writes a snapshot as fields, decoding one camera at a time. */
+  static void appendSnapshot(SnapshotReader reader, ReportBuilder report)
+      throws SnapshotFormatException {
+    report.setExpectedSections(1 + reader.getCameraCount());
+    appendValues(report, reader.readDevice());
+    report.append("\n=================================\n\n");
+    report.endSection("Device");
+    for (int i = 0; i < reader.getCameraCount(); i++) {
+      Snapshot.Camera camera = reader.readCamera(i);
+      report.field("CameraID", camera.id);
+      appendValues(report, camera.values);
+      report.append("\n=================================\n\n");
+      report.endSection("Camera " + camera.id);
+    }
+  }
+
+  private static void appendValues(ReportBuilder report, Map<String, Object> values) {
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      report.field(entry.getKey(), DiffReport.format(entry.getValue()));
+    }
+  }
+
+  /** Label for a section whose first field is line, or null to keep the previous label. */
+  private static String labelOf(String line) {
+    int separator = separatorOf(line);
+    String key = line.substring(0, separator).trim();
+    if (key.equals("CameraManager IDs List") || key.equals("All Camera IDs")) {
+      return "Camera IDs";
+    }
+    if (!key.equals("CameraID")) return null;
+    // "[0] Logical ..." in the camera reports, just "0" in the camcorder matrix
+    String value = line.substring(separator + 1).trim();
+    int close = value.indexOf(']');
+    String id = value.startsWith("[") && close > 0 ? value.substring(1, close) : value;
+    return "Camera " + id;
+  }
+
+  private static int separatorOf(String line) {
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '=' || c == ':') return i;
+    }
+    return -1;
+  }
+
+  private static boolean isDivider(String line) {
+    if (line.isEmpty()) return false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c != '=' && c != '-' && c != ' ') return false;
+    }
+    return true;
+  }
+
+  /**
+   * Collects the fields of the device and camera sections as string values. Repeated keys in one
+   * section get a {@code #2}, {@code #3}, ... suffix so none is lost.
+   */
+  static Snapshot toSnapshot(ReportDocument document) {
+    Snapshot snapshot = new Snapshot();
+    for (int s = 0; s < document.getSectionCount(); s++) {
+      String label = document.getSectionLabel(s);
+      Map<String, Object> values;
+      if (label.equals("Device")) {
+        values = snapshot.device;
+      } else if (label.startsWith("Camera ") && !label.equals("Camera IDs")) {
+        String id = label.substring("Camera ".length());
+        Snapshot.Camera camera = snapshot.getCamera(id);
+        if (camera == null) {
+          camera = new Snapshot.Camera(id);
+          snapshot.cameras.add(camera);
+        }
+        values = camera.values;
+      } else {
+        continue;
+      }
+
+      ReportSection section = document.getSection(s);
+      for (int f = 0; f < section.fieldCount; f++) {
+        int base = f * ReportBuilder.FIELD_STRIDE;
+        int keyStart = section.fields[base + ReportBuilder.FIELD_KEY_START];
+        int separator = section.fields[base + ReportBuilder.FIELD_SEPARATOR];
+        int valueEnd = section.fields[base + ReportBuilder.FIELD_VALUE_END];
+        String key = section.text.substring(keyStart, separator).trim();
+        String value = section.text.substring(Math.min(separator + 1, valueEnd), valueEnd).trim();
+        String unique = key;
+        for (int n = 2; values.containsKey(unique); n++) unique = key + " #" + n;
+        values.put(unique, value);
+      }
+    }
+    return snapshot;
+  }
+}
@@ -0,0 +1,203 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Structured query over a {@link ReportFieldIndex}. A query is a list of space separated terms
+ * that must all hold for a field:
+ *
+ * <ul>
+ *   <li>{@code key:pixel} key contains the text, {@code key:android.control.*} key matches the
+ *       glob
+ *   <li>{@code value>1.0}, {@code value>=60}, {@code value<}, {@code value<=}, {@code value=}
+ *       compare the first number in the value
+ *   <li>{@code value:yuv} value contains the text
+ *   <li>{@code camera:2}, {@code facing:back}, {@code type:tele} restrict to cameras
+ * </ul>
+ *
+ * Matching is case-insensitive. Other words are treated as {@code key:} terms. A term with an
+ * empty or unparsable operand, such as {@code facing:} in the report text {@code Facing: BACK},
+ * makes the whole query plain text.
+ */
+public class ReportQuery {
+
+  private static final String[] COMPARISONS = {">=", "<=", ">", "<", "="};
+
+  private final List<String> keyTerms = new ArrayList<>();
+  private final List<FoldedMatcher> valueTerms = new ArrayList<>();
+  private final List<String> comparisons = new ArrayList<>();
+  private final List<Double> operands = new ArrayList<>();
+  private String camera;
+  private String facing;
+  private String type;
+
+  private ReportQuery() {}
+
+  /**
+   * Parses a query, or returns null if it has no structured term or a structured term has no
+   * valid operand, in which case it is plain text.
+   */
+  public static ReportQuery parse(String query) {
+    ReportQuery parsed = new ReportQuery();
+    boolean structured = false;
+
+    for (String term : query.trim().toLowerCase(Locale.US).split("\\s+")) {
+      if (term.isEmpty()) continue;
+      if (term.startsWith("key:")) {
+        if (term.length() == 4) return null;
+        parsed.addKey(term.substring(4));
+        structured = true;
+      } else if (term.startsWith("value:")) {
+        if (term.length() == 6) return null;
+        parsed.valueTerms.add(new FoldedMatcher(term.substring(6)));
+        structured = true;
+      } else if (term.startsWith("value")) {
+        if (!parsed.addComparison(term.substring(5))) return null;
+        structured = true;
+      } else if (term.startsWith("camera:")) {
+        parsed.camera = operand(term, 7);
+        if (parsed.camera == null) return null;
+        structured = true;
+      } else if (term.startsWith("facing:")) {
+        parsed.facing = operand(term, 7);
+        if (parsed.facing == null) return null;
+        structured = true;
+      } else if (term.startsWith("type:")) {
+        parsed.type = operand(term, 5);
+        if (parsed.type == null) return null;
+        structured = true;
+      } else {
+        parsed.addKey(term);
+      }
+    }
+    return structured ? parsed : null;
+  }
+
+  /** What follows a prefix of the given length, or null if nothing does. */
+  private static String operand(String term, int prefixLength) {
+    return term.length() > prefixLength ? term.substring(prefixLength) : null;
+  }
+
+  private void addKey(String term) {
+    if (!term.isEmpty()) keyTerms.add(term);
+  }
+
+  private boolean addComparison(String term) {
+    for (String comparison : COMPARISONS) {
+      if (!term.startsWith(comparison)) continue;
+      try {
+        operands.add(Double.parseDouble(term.substring(comparison.length())));
+        comparisons.add(comparison);
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matchesKey(String key, String term) {
+    if (term.indexOf('*') < 0) return key.contains(term);
+    StringBuilder regex = new StringBuilder();
+    for (String part : term.split("\\*", -1)) {
+      if (regex.length() > 0) regex.append(".*");
+      regex.append(Pattern.quote(part));
+    }
+    return Pattern.matches(regex.toString(), key);
+  }
+
+  /** Indexes of the matching fields in text order. The scan reads only the index columns. */
+  public int[] run(ReportFieldIndex index) {
+    // Key and camera terms are resolved once against the dictionaries, not per field
+    boolean[] keyMatches = new boolean[index.keys.length];
+    for (int k = 0; k < keyMatches.length; k++) {
+      boolean match = true;
+      for (String term : keyTerms) {
+        if (!matchesKey(index.keys[k], term)) {
+          match = false;
+          break;
+        }
+      }
+      keyMatches[k] = match;
+    }
+
+    boolean cameraFilter = camera != null || facing != null || type != null;
+    boolean[] cameraMatches = new boolean[index.cameraIds.length];
+    for (int c = 0; c < cameraMatches.length; c++) {
+      cameraMatches[c] =
+          (camera == null || index.cameraIds[c].equals(camera))
+              && (facing == null || index.cameraFacings[c].equals(facing))
+              && (type == null || index.cameraTypes[c].equals(type));
+    }
+
+    String text = index.document.text;
+    int[] fields = index.document.getFields();
+    int[] found = new int[64];
+    int count = 0;
+
+    for (int i = 0; i < index.fieldKeys.length; i++) {
+      if (!keyMatches[index.fieldKeys[i]]) continue;
+      if (cameraFilter && (index.fieldCameras[i] < 0 || !cameraMatches[index.fieldCameras[i]])) {
+        continue;
+      }
+      if (!compareNumber(index.fieldNumbers[i])) continue;
+      if (!valueTerms.isEmpty()) {
+        int base = i * ReportBuilder.FIELD_STRIDE;
+        if (!containsValueTerms(
+            text,
+            fields[base + ReportBuilder.FIELD_SEPARATOR] + 1,
+            fields[base + ReportBuilder.FIELD_VALUE_END])) {
+          continue;
+        }
+      }
+      if (count == found.length) found = Arrays.copyOf(found, count * 2);
+      found[count++] = i;
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  private boolean compareNumber(double number) {
+    for (int i = 0; i < comparisons.size(); i++) {
+      if (Double.isNaN(number)) return false;
+      double operand = operands.get(i);
+      boolean match;
+      switch (comparisons.get(i)) {
+        case ">=":
+          match = number >= operand;
+          break;
+        case "<=":
+          match = number <= operand;
+          break;
+        case ">":
+          match = number > operand;
+          break;
+        case "<":
+          match = number < operand;
+          break;
+        default:
+          match = number == operand;
+          break;
+      }
+      if (!match) return false;
+    }
+    return true;
+  }
+
+  private boolean containsValueTerms(String text, int start, int end) {
+    for (FoldedMatcher term : valueTerms) {
+      if (term.indexIn(text, start, end) < 0) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,200 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.util.Arrays;
+
+/**
+ * Case-insensitive suffix array over a report's text. Characters are compared through {@link
+ * FoldedMatcher#fold}, so the text is indexed as is. All suffixes that start with a query sit next to
+ * each other in the array, so finding every match is two binary searches. Building it takes
+ * O(n log n) time and one int per character.
+ */
+public class ReportSearchIndex {
+
+  /** Matches of one query: its suffix array range and the match offsets in text order. */
+  public static final class Result {
+    // Folded, as compared against the index
+    public final String query;
+    public final int[] matches;
+    final int lo;
+    final int hi;
+
+    Result(String query, int lo, int hi, int[] matches) {
+      this.query = query;
+      this.lo = lo;
+      this.hi = hi;
+      this.matches = matches;
+    }
+  }
+
+  private final String text;
+  private final int[] suffixes;
+
+  private ReportSearchIndex(String text, int[] suffixes) {
+    this.text = text;
+    this.suffixes = suffixes;
+  }
+
+  /** Builds the index. Call off the main thread. */
+  public static ReportSearchIndex build(String text) {
+    return new ReportSearchIndex(text, buildSuffixArray(text));
+  }
+
+  /** Prefix doubling with counting sorts on the rank of each half. */
+  private static int[] buildSuffixArray(String s) {
+    int n = s.length();
+    int[] sa = new int[n];
+    if (n == 0) return sa;
+
+    int[] rank = new int[n];
+    int[] next = new int[n];
+    int[] order = new int[n];
+
+    int alphabet = 0;
+    for (int i = 0; i < n; i++) {
+      alphabet = Math.max(alphabet, FoldedMatcher.fold(s.charAt(i)) + 1);
+    }
+    int[] count = new int[Math.max(alphabet, n)];
+    for (int i = 0; i < n; i++) count[FoldedMatcher.fold(s.charAt(i))]++;
+    for (int c = 1; c < alphabet; c++) count[c] += count[c - 1];
+    for (int i = n - 1; i >= 0; i--) sa[--count[FoldedMatcher.fold(s.charAt(i))]] = i;
+
+    rank[sa[0]] = 0;
+    for (int i = 1; i < n; i++) {
+      char a = FoldedMatcher.fold(s.charAt(sa[i - 1]));
+      char b = FoldedMatcher.fold(s.charAt(sa[i]));
+      rank[sa[i]] = rank[sa[i - 1]] + (a != b ? 1 : 0);
+    }
+
+    for (int k = 1; rank[sa[n - 1]] < n - 1; k <<= 1) {
+      // Order by the second half: suffixes without one come first
+      int p = 0;
+      for (int i = n - k; i < n; i++) order[p++] = i;
+      for (int i = 0; i < n; i++) {
+        if (sa[i] >= k) order[p++] = sa[i] - k;
+      }
+
+      // Stable counting sort by the first half
+      int classes = rank[sa[n - 1]] + 1;
+      Arrays.fill(count, 0, classes, 0);
+      for (int i = 0; i < n; i++) count[rank[i]]++;
+      for (int c = 1; c < classes; c++) count[c] += count[c - 1];
+      for (int i = n - 1; i >= 0; i--) sa[--count[rank[order[i]]]] = order[i];
+
+      next[sa[0]] = 0;
+      for (int i = 1; i < n; i++) {
+        int a = sa[i - 1];
+        int b = sa[i];
+        boolean same =
+            rank[a] == rank[b]
+                && (a + k < n ? rank[a + k] : -1) == (b + k < n ? rank[b + k] : -1);
+        next[b] = next[a] + (same ? 0 : 1);
+      }
+      int[] swap = rank;
+      rank = next;
+      next = swap;
+    }
+    return sa;
+  }
+
+  /**
+   * Compares the start of the suffix at pos with the query: 0 if the suffix starts with it,
+   * negative if the suffix sorts before it and positive if after. The query must be folded. The
+   * first {@code from} characters are known to match and are skipped.
+   */
+  private int compare(int pos, String query, int from) {
+    int length = Math.min(query.length(), text.length() - pos);
+    for (int i = from; i < length; i++) {
+      int diff = FoldedMatcher.fold(text.charAt(pos + i)) - query.charAt(i);
+      if (diff != 0) return diff;
+    }
+    return length < query.length() ? -1 : 0;
+  }
+
+  /** First slot in [lo, hi) whose suffix is not before the query. */
+  private int lowerBound(String query, int lo, int hi, int from) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (compare(suffixes[mid], query, from) < 0) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  /** First slot in [lo, hi) whose suffix sorts after every suffix that starts with the query. */
+  private int upperBound(String query, int lo, int hi, int from) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (compare(suffixes[mid], query, from) <= 0) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  /** Number of matches of a query, ignoring case. */
+  public int count(String query) {
+    if (query.isEmpty()) return 0;
+    query = FoldedMatcher.fold(query);
+    return upperBound(query, 0, suffixes.length, 0) - lowerBound(query, 0, suffixes.length, 0);
+  }
+
+  /** Offsets of every match of a query, ignoring case, in text order. */
+  public int[] find(String query) {
+    return search(query, null).matches;
+  }
+
+  /**
+   * Searches for a query, ignoring case. When it extends the previous query, only the previous
+   * matches are candidates: the range is narrowed inside the old one and the old offsets are
+   * filtered, so each extra character costs less than the one before. Otherwise the whole index is
+   * searched.
+   */
+  public Result search(String query, Result previous) {
+    query = FoldedMatcher.fold(query);
+    if (query.isEmpty()) return new Result(query, 0, 0, new int[0]);
+
+    if (previous != null && query.startsWith(previous.query) && !previous.query.isEmpty()) {
+      int known = previous.query.length();
+      int lo = lowerBound(query, previous.lo, previous.hi, known);
+      int hi = upperBound(query, lo, previous.hi, known);
+      return new Result(query, lo, hi, narrow(previous.matches, hi - lo, query, known));
+    }
+
+    int lo = lowerBound(query, 0, suffixes.length, 0);
+    int hi = upperBound(query, lo, suffixes.length, 0);
+    int[] matches = Arrays.copyOfRange(suffixes, lo, hi);
+    Arrays.sort(matches);
+    return new Result(query, lo, hi, matches);
+  }
+
+  /** Keeps the candidates, already in text order, that still match after the known prefix. */
+  private int[] narrow(int[] candidates, int count, String query, int known) {
+    int[] matches = new int[count];
+    int found = 0;
+    for (int candidate : candidates) {
+      if (found == count) break;
+      if (matchesFrom(candidate, query, known)) {
+        matches[found++] = candidate;
+      }
+    }
+    return matches;
+  }
+
+  private boolean matchesFrom(int pos, String query, int from) {
+    if (pos + query.length() > text.length()) return false;
+    for (int i = from; i < query.length(); i++) {
+      if (FoldedMatcher.fold(text.charAt(pos + i)) != query.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  public int length() {
+    return text.length();
+  }
+}
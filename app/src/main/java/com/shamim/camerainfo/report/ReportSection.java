@@ -0,0 +1,38 @@
+package com.shamim.camerainfo.report;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+
+/**
+ * A finished part of a report, copied out of the {@link ReportBuilder} so it can be colored and
+ * laid out on another thread while generation continues. Field offsets are relative to the
+ * section text.
+ */
+public class ReportSection {
+
+  public final int index;
+  public final String label;
+  public final int start;
+  public final String text;
+  public final int[] fields;
+  public final int fieldCount;
+
+  public ReportSection(
+      int index, String label, int start, String text, int[] fields, int fieldCount) {
+    this.index = index;
+    this.label = label;
+    this.start = start;
+    this.text = text;
+    this.fields = fields;
+    this.fieldCount = fieldCount;
+  }
+
+  public int end() {
+    return start + text.length();
+  }
+}
@@ -0,0 +1,182 @@
+package com.shamim.camerainfo.report;
+
+import android.content.Context;
+import android.hardware.camera2.CameraManager;
+import android.os.Build;
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.snapshot.*;
+import com.shamim.camerainfo.update_checker.*;
+import com.shamim.camerainfo.util.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Where the app keeps snapshots: the last extracted snapshot in the cache directory, reused by
+ * every snapshot based export until the next reset or build change, the snapshot history and the
+ * reference database of other devices in the files directory. Call from a background thread.
+ */
+public final class SnapshotStore {
+
+  private static final String SNAPSHOT_FILE = "camera Info.cisnap";
+  private static final String HISTORY_DIR = "snapshot_history";
+  private static final String REFERENCE_FILE = "reference.cird";
+  private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+  private static SnapshotHistory history;
+  private static ImportedSnapshot imported;
+  private static ReferenceDatabase reference;
+
+  /** Loads a snapshot, on a background thread. */
+  public interface Loader {
+    Snapshot load() throws IOException;
+  }
+
+  /** The last imported report, kept for comparisons until another one is imported. */
+  public static final class ImportedSnapshot {
+    public final String name;
+    public final Loader loader;
+
+    ImportedSnapshot(String name, Loader loader) {
+      this.name = name;
+      this.loader = loader;
+    }
+  }
+
+  private SnapshotStore() {}
+
+  public static File getSnapshotFile(Context context) {
+    return new File(context.getCacheDir(), SNAPSHOT_FILE);
+  }
+
+  /**
+   * The cached snapshot file, extracted from the camera service first if there is none or if it
+   * was taken on another build, for example before an OTA.
+   */
+  public static File ensureSnapshotFile(Context context, CameraManager cm) throws IOException {
+    File file = getSnapshotFile(context);
+    if (!isCurrent(file)) ReportExporter.writeSnapshot(SnapshotExtractor.extract(cm), file);
+    return file;
+  }
+
+  /** Whether a snapshot file exists, reads and has this build's fingerprint. */
+  private static boolean isCurrent(File file) throws IOException {
+    if (!file.exists()) return false;
+    Map<String, Object> device;
+    try (InputStream in = new FileInputStream(file)) {
+      device = SnapshotReader.read(in).readDevice();
+    } catch (SnapshotFormatException e) {
+      return false;
+    }
+    return Build.FINGERPRINT.equals(device.get("build.fingerprint"));
+  }
+
+  public static Snapshot readSnapshot(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return SnapshotReader.read(in).readAll();
+    }
+  }
+
+  /** One history for the whole process, so concurrent saves are serialized. */
+  public static synchronized SnapshotHistory getHistory(Context context) {
+    if (history == null) {
+      history = new SnapshotHistory(new File(context.getFilesDir(), HISTORY_DIR));
+    }
+    return history;
+  }
+
+  public static synchronized void setImported(String name, Loader loader) {
+    imported = new ImportedSnapshot(name, loader);
+  }
+
+  public static synchronized ImportedSnapshot getImported() {
+    return imported;
+  }
+
+  /**
+   * The reference database: one installed with {@link #installReference}, otherwise the one bundled
+   * as an asset, copied out once because a compressed asset cannot be mapped. Null if there is
+   * none.
+   */
+  public static synchronized ReferenceDatabase openReference(Context context) throws IOException {
+    if (reference != null) return reference;
+    File file = new File(context.getFilesDir(), REFERENCE_FILE);
+    if (!file.exists()) {
+      try (InputStream in = context.getAssets().open(REFERENCE_FILE)) {
+        copyReference(in, file);
+      } catch (FileNotFoundException e) {
+        return null;
+      }
+    }
+    reference = ReferenceDatabase.open(file);
+    return reference;
+  }
+
+  /** Replaces the reference database with a sideloaded one, after checking that it opens. */
+  public static synchronized ReferenceDatabase installReference(Context context, InputStream in)
+      throws IOException {
+    File file = new File(context.getFilesDir(), REFERENCE_FILE);
+    File partial = new File(context.getFilesDir(), REFERENCE_FILE + ".part");
+    copy(in, partial);
+    try {
+      ReferenceDatabase.open(partial);
+    } catch (IOException e) {
+      partial.delete();
+      throw e;
+    }
+    if (file.exists() && !file.delete()) throw new IOException("Cannot replace " + file);
+    if (!partial.renameTo(file)) throw new IOException("Cannot rename " + partial);
+    reference = ReferenceDatabase.open(file);
+    return reference;
+  }
+
+  private static void copyReference(InputStream in, File file) throws IOException {
+    File partial = new File(file.getPath() + ".part");
+    copy(in, partial);
+    if (!partial.renameTo(file)) throw new IOException("Cannot rename " + partial);
+  }
+
+  private static void copy(InputStream in, File file) throws IOException {
+    byte[] buffer = new byte[64 * 1024];
+    try (OutputStream out = new FileOutputStream(file)) {
+      for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+    }
+  }
+
+  /** Label and capture time of a history entry, for lists. */
+  public static String describe(SnapshotHistory.Entry entry) {
+    String created =
+        DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT)
+            .format(new Date(entry.created));
+    return entry.label + " · " + created;
+  }
+
+  /**
+   * Adds a snapshot freshly extracted from the camera service to the history and evicts by the
+   * age and size limits from the settings. The cached snapshot is replaced with it too.
+   */
+  public static SnapshotHistory.AddResult saveToHistory(
+      Context context, CameraManager cm, String label) throws IOException {
+    // Never the cached snapshot: it may predate an OTA, and the entry would carry old cameras
+    Snapshot snapshot = SnapshotExtractor.extract(cm);
+    ReportExporter.writeSnapshot(snapshot, getSnapshotFile(context));
+    SnapshotHistory store = getHistory(context);
+    long now = System.currentTimeMillis();
+    SnapshotHistory.AddResult result = store.add(snapshot, label, now);
+    int maxAgeDays = SharedPrefValues.getValue("pref_history_max_age_days", 365);
+    int maxSizeMb = SharedPrefValues.getValue("pref_history_max_size_mb", 20);
+    store.evict(maxAgeDays * DAY_MILLIS, maxSizeMb * 1024L * 1024L, now);
+    return result;
+  }
+}
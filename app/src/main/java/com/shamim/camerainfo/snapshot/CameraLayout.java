@@ -0,0 +1,218 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What makes the cameras of two devices comparable: per camera the facing, hardware level, output
+ * formats, pixel array size and focal length. A layout is a fixed number of ints, so {@link
+ * ReferenceDatabase} can compare one against its mapped records without decoding them.
+ */
+public final class CameraLayout {
+
+  /** Cameras beyond this many are left out. */
+  public static final int MAX_CAMERAS = 8;
+
+  static final int CAMERA_INTS = 6;
+  static final int FACING = 0;
+  static final int HARDWARE_LEVEL = 1;
+  static final int FORMATS = 2;
+  static final int PIXEL_WIDTH = 3;
+  static final int PIXEL_HEIGHT = 4;
+  static final int FOCAL_LENGTH_UM = 5;
+
+  /** Length of {@link #toInts}. */
+  public static final int INTS = MAX_CAMERAS * CAMERA_INTS;
+
+  /** Output formats with a bit in the format mask, by their short name. */
+  public static final String[] FORMAT_NAMES = {
+    "JPEG", "YUV_420_888", "PRIVATE", "RAW_SENSOR", "RAW10", "RAW12", "RAW_PRIVATE", "DEPTH16",
+    "DEPTH_POINT_CLOUD", "Y8", "NV21", "NV16", "YUV_422_888", "YUV_444_888", "YUY2", "RGB_565"
+  };
+
+  private static final String[] FACINGS = {"front", "back", "external"};
+  private static final String[] HARDWARE_LEVELS = {
+    "LIMITED", "FULL", "LEGACY", "LEVEL_3", "EXTERNAL"
+  };
+
+  // Distance terms: one unmatched camera costs as much as a sensor 50x larger
+  private static final double UNMATCHED = 4;
+  private static final double UNKNOWN = 0.5;
+  private static final double FORMAT = 0.25;
+  private static final double HARDWARE_LEVEL_CHANGE = 0.5;
+
+  private final int[] values;
+
+  CameraLayout(int[] values) {
+    this.values = values;
+  }
+
+  /** Layout of the cameras of a snapshot, from typed values or from their text report form. */
+  public static CameraLayout of(Snapshot snapshot) {
+    int[] values = new int[INTS];
+    int count = 0;
+    for (Snapshot.Camera camera : snapshot.cameras) {
+      if (count == MAX_CAMERAS) break;
+      int base = count++ * CAMERA_INTS;
+      Map<String, Object> entries = camera.values;
+      values[base + FACING] = firstInt(entries.get("android.lens.facing"), -1);
+      values[base + HARDWARE_LEVEL] =
+          firstInt(entries.get("android.info.supportedHardwareLevel"), -1);
+      double[] pixels = numbers(entries.get("android.sensor.info.pixelArraySize"));
+      if (pixels.length >= 2) {
+        values[base + PIXEL_WIDTH] = (int) pixels[0];
+        values[base + PIXEL_HEIGHT] = (int) pixels[1];
+      }
+      double[] focal = numbers(entries.get("android.lens.info.availableFocalLengths"));
+      if (focal.length > 0) values[base + FOCAL_LENGTH_UM] = (int) Math.round(focal[0] * 1000);
+      int formats = 0;
+      for (int f = 0; f < FORMAT_NAMES.length; f++) {
+        String key = Snapshot.STREAM_PREFIX + FORMAT_NAMES[f] + Snapshot.OUTPUT_SIZES;
+        if (entries.containsKey(key)) formats |= 1 << f;
+      }
+      values[base + FORMATS] = formats;
+      // A slot in use never has facing -1, so an unknown facing still counts as a camera
+      if (values[base + FACING] < 0) values[base + FACING] = FACINGS.length;
+    }
+    for (int c = count; c < MAX_CAMERAS; c++) values[c * CAMERA_INTS + FACING] = -1;
+    return new CameraLayout(values);
+  }
+
+  /** The layout as {@link #INTS} ints, unused camera slots with facing -1. */
+  public int[] toInts() {
+    return values.clone();
+  }
+
+  public int getCameraCount() {
+    return cameraCount(values);
+  }
+
+  static int cameraCount(int[] values) {
+    int count = 0;
+    while (count < MAX_CAMERAS && values[count * CAMERA_INTS + FACING] >= 0) count++;
+    return count;
+  }
+
+  /** One camera as "back, 4000x3000, 4.38 mm, FULL, JPEG RAW10 ...". */
+  public String describeCamera(int camera) {
+    int base = camera * CAMERA_INTS;
+    StringBuilder sb = new StringBuilder();
+    int facing = values[base + FACING];
+    sb.append(facing < FACINGS.length ? FACINGS[facing] : "unknown facing");
+    sb.append(", ").append(values[base + PIXEL_WIDTH]);
+    sb.append('x').append(values[base + PIXEL_HEIGHT]);
+    if (values[base + FOCAL_LENGTH_UM] > 0) {
+      sb.append(String.format(Locale.US, ", %.2f mm", values[base + FOCAL_LENGTH_UM] / 1000f));
+    }
+    int level = values[base + HARDWARE_LEVEL];
+    if (level >= 0 && level < HARDWARE_LEVELS.length) {
+      sb.append(", ").append(HARDWARE_LEVELS[level]);
+    }
+    List<String> formats = new ArrayList<>();
+    for (int f = 0; f < FORMAT_NAMES.length; f++) {
+      if ((values[base + FORMATS] & (1 << f)) != 0) formats.add(FORMAT_NAMES[f]);
+    }
+    if (!formats.isEmpty()) sb.append(", ").append(String.join(" ", formats));
+    return sb.toString();
+  }
+
+  /** The {@link #distance} from this layout to other. */
+  public double distanceTo(CameraLayout other) {
+    return distance(values, other.values);
+  }
+
+  /**
+   * Distance between two layouts of {@link #INTS} ints, 0 for equal layouts. Cameras of a are
+   * matched in order to the closest unmatched camera of b with the same facing; the cost of a pair
+   * is the log ratio of their pixel counts and focal lengths plus fixed costs per differing format
+   * and hardware level. Cameras without a match on the other side cost a fixed amount each.
+   */
+  static double distance(int[] a, int[] b) {
+    int aCount = cameraCount(a);
+    int bCount = cameraCount(b);
+    int used = 0;
+    double distance = 0;
+    for (int i = 0; i < aCount; i++) {
+      int best = -1;
+      double bestCost = UNMATCHED;
+      for (int j = 0; j < bCount; j++) {
+        if ((used & (1 << j)) != 0) continue;
+        if (a[i * CAMERA_INTS + FACING] != b[j * CAMERA_INTS + FACING]) continue;
+        double cost = cameraCost(a, i * CAMERA_INTS, b, j * CAMERA_INTS);
+        if (cost < bestCost) {
+          bestCost = cost;
+          best = j;
+        }
+      }
+      if (best >= 0) used |= 1 << best;
+      distance += bestCost;
+    }
+    distance += (bCount - Integer.bitCount(used)) * UNMATCHED;
+    return distance;
+  }
+
+  private static double cameraCost(int[] a, int i, int[] b, int j) {
+    double cost =
+        logRatio(
+            (double) a[i + PIXEL_WIDTH] * a[i + PIXEL_HEIGHT],
+            (double) b[j + PIXEL_WIDTH] * b[j + PIXEL_HEIGHT]);
+    cost += logRatio(a[i + FOCAL_LENGTH_UM], b[j + FOCAL_LENGTH_UM]);
+    cost += Integer.bitCount(a[i + FORMATS] ^ b[j + FORMATS]) * FORMAT;
+    if (a[i + HARDWARE_LEVEL] != b[j + HARDWARE_LEVEL]) cost += HARDWARE_LEVEL_CHANGE;
+    return cost;
+  }
+
+  private static double logRatio(double a, double b) {
+    if (a <= 0 || b <= 0) return a == b ? 0 : UNKNOWN;
+    return Math.abs(Math.log(a / b));
+  }
+
+  private static int firstInt(Object value, int fallback) {
+    double[] numbers = numbers(value);
+    return numbers.length > 0 ? (int) numbers[0] : fallback;
+  }
+
+  /** The numbers in a value: the elements of a numeric array, or those written in a string. */
+  static double[] numbers(Object value) {
+    if (value instanceof Number) return new double[] {((Number) value).doubleValue()};
+    if (value instanceof int[]) {
+      int[] ints = (int[]) value;
+      double[] numbers = new double[ints.length];
+      for (int i = 0; i < ints.length; i++) numbers[i] = ints[i];
+      return numbers;
+    }
+    if (value instanceof float[]) {
+      float[] floats = (float[]) value;
+      double[] numbers = new double[floats.length];
+      for (int i = 0; i < floats.length; i++) numbers[i] = floats[i];
+      return numbers;
+    }
+    if (!(value instanceof String)) return new double[0];
+
+    // "4000x3000", "[4.38, 6.0]", "1"
+    String text = (String) value;
+    List<Double> numbers = new ArrayList<>();
+    int i = 0;
+    while (i < text.length()) {
+      char c = text.charAt(i);
+      if (!Character.isDigit(c)) {
+        i++;
+        continue;
+      }
+      int start = i;
+      while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+        i++;
+      }
+      try {
+        numbers.add(Double.parseDouble(text.substring(start, i)));
+      } catch (NumberFormatException e) {
+        // "1.2.3", not a number
+      }
+    }
+    double[] result = new double[numbers.size()];
+    for (int n = 0; n < result.length; n++) result[n] = numbers.get(n);
+    return result;
+  }
+}
@@ -0,0 +1,149 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON writer. Tokens go straight to the underlying writer, so memory use does
+ * not depend on the size of the document. Separators are tracked per nesting level.
+ */
+public final class JsonWriter {
+
+  private final Writer out;
+  // Per nesting level: whether a value was already written at that level
+  private boolean[] hasValue = new boolean[16];
+  private int depth = 0;
+  private boolean afterName = false;
+
+  public JsonWriter(Writer out) {
+    this.out = out;
+  }
+
+  public JsonWriter beginObject() throws IOException {
+    return open('{');
+  }
+
+  public JsonWriter endObject() throws IOException {
+    return close('}');
+  }
+
+  public JsonWriter beginArray() throws IOException {
+    return open('[');
+  }
+
+  public JsonWriter endArray() throws IOException {
+    return close(']');
+  }
+
+  public JsonWriter name(String name) throws IOException {
+    separate();
+    writeString(name);
+    out.write(':');
+    afterName = true;
+    return this;
+  }
+
+  public JsonWriter value(String value) throws IOException {
+    if (value == null) return nullValue();
+    separate();
+    writeString(value);
+    return this;
+  }
+
+  public JsonWriter value(boolean value) throws IOException {
+    separate();
+    out.write(value ? "true" : "false");
+    return this;
+  }
+
+  public JsonWriter value(long value) throws IOException {
+    separate();
+    out.write(Long.toString(value));
+    return this;
+  }
+
+  /** Floats keep their shortest form, so 0.1f is written as 0.1 rather than 0.10000000149. */
+  public JsonWriter value(float value) throws IOException {
+    if (Float.isNaN(value) || Float.isInfinite(value)) return nullValue();
+    separate();
+    out.write(Float.toString(value));
+    return this;
+  }
+
+  /** NaN and infinities have no JSON form and are written as null. */
+  public JsonWriter value(double value) throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value)) return nullValue();
+    separate();
+    out.write(Double.toString(value));
+    return this;
+  }
+
+  public JsonWriter nullValue() throws IOException {
+    separate();
+    out.write("null");
+    return this;
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  private JsonWriter open(char bracket) throws IOException {
+    separate();
+    out.write(bracket);
+    if (++depth == hasValue.length) hasValue = Arrays.copyOf(hasValue, depth * 2);
+    hasValue[depth] = false;
+    return this;
+  }
+
+  private JsonWriter close(char bracket) throws IOException {
+    if (depth == 0) throw new IllegalStateException("Nothing to close");
+    depth--;
+    out.write(bracket);
+    return this;
+  }
+
+  private void separate() throws IOException {
+    if (afterName) {
+      // A value right after its name needs no comma
+      afterName = false;
+      return;
+    }
+    if (hasValue[depth]) out.write(',');
+    hasValue[depth] = true;
+  }
+
+  private void writeString(String value) throws IOException {
+    out.write('"');
+    int start = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\' && c != 0x2028 && c != 0x2029) continue;
+      out.write(value, start, i - start);
+      switch (c) {
+        case '"':
+          out.write("\\\"");
+          break;
+        case '\\':
+          out.write("\\\\");
+          break;
+        case '\n':
+          out.write("\\n");
+          break;
+        case '\r':
+          out.write("\\r");
+          break;
+        case '\t':
+          out.write("\\t");
+          break;
+        default:
+          out.write(String.format("\\u%04x", (int) c));
+          break;
+      }
+      start = i + 1;
+    }
+    out.write(value, start, value.length() - start);
+    out.write('"');
+  }
+}
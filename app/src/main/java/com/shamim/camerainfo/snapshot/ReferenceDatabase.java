@@ -0,0 +1,249 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only database of the camera layouts of known devices, memory-mapped so that lookups only
+ * touch the pages they need and nothing but the results is copied into the heap:
+ *
+ * <pre>
+ * header             "CIRD", version, device count, {@link CameraLayout#INTS}, model index
+ *                    offset, fingerprint index offset, strings offset, strings size (ints)
+ * devices            fixed-size records: model, fingerprint and SoC (offsets in the strings),
+ *                    camera count, then the {@link CameraLayout} ints
+ * model index        device numbers sorted by model, then fingerprint
+ * fingerprint index  device numbers sorted by fingerprint
+ * strings            per string: unsigned 16-bit UTF-8 length and the bytes
+ * </pre>
+ *
+ * All ints are big endian. Strings are sorted by their UTF-8 bytes, compared unsigned, so both
+ * indexes are binary searched in place. Written by {@link ReferenceDatabaseWriter}. Lookups only
+ * use absolute reads, so one instance can be shared between threads.
+ */
+public final class ReferenceDatabase {
+
+  static final int MAGIC = 0x43495244; // "CIRD"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8 * 4;
+  static final int RECORD_FIELDS = 4;
+  static final int RECORD_SIZE = (RECORD_FIELDS + CameraLayout.INTS) * 4;
+
+  /** One known device. */
+  public static final class Device {
+    public final int index;
+    public final String model;
+    public final String fingerprint;
+    public final String soc;
+    public final CameraLayout layout;
+
+    Device(int index, String model, String fingerprint, String soc, CameraLayout layout) {
+      this.index = index;
+      this.model = model;
+      this.fingerprint = fingerprint;
+      this.soc = soc;
+      this.layout = layout;
+    }
+  }
+
+  /** Result of {@link #nearest}: a device number and its distance to the query layout. */
+  public static final class Match {
+    public final int index;
+    public final double distance;
+
+    Match(int index, double distance) {
+      this.index = index;
+      this.distance = distance;
+    }
+  }
+
+  private final ByteBuffer buffer;
+  private final int deviceCount;
+  private final int modelIndex;
+  private final int fingerprintIndex;
+  private final int strings;
+  private final long stringsEnd;
+
+  public ReferenceDatabase(ByteBuffer buffer) throws SnapshotFormatException {
+    this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    if (buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+      throw new SnapshotFormatException("Not a reference database");
+    }
+    int version = this.buffer.getInt(4);
+    if (version < 1 || version > VERSION) {
+      throw new SnapshotFormatException("Unsupported reference database version " + version);
+    }
+    deviceCount = this.buffer.getInt(8);
+    if (this.buffer.getInt(12) != CameraLayout.INTS) {
+      throw new SnapshotFormatException("Unsupported camera layout");
+    }
+    modelIndex = this.buffer.getInt(16);
+    fingerprintIndex = this.buffer.getInt(20);
+    strings = this.buffer.getInt(24);
+    stringsEnd = (long) strings + this.buffer.getInt(28);
+    long records = (long) deviceCount * RECORD_SIZE;
+    if (deviceCount < 0
+        || HEADER_SIZE + records > modelIndex
+        || modelIndex + 4L * deviceCount > fingerprintIndex
+        || fingerprintIndex + 4L * deviceCount > strings
+        || stringsEnd < strings
+        || stringsEnd > buffer.capacity()) {
+      throw new SnapshotFormatException("Truncated reference database");
+    }
+  }
+
+  /** Maps file. The mapping stays valid after the channel is closed. */
+  public static ReferenceDatabase open(File file) throws IOException {
+    try (RandomAccessFile in = new RandomAccessFile(file, "r");
+        FileChannel channel = in.getChannel()) {
+      return new ReferenceDatabase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public int getDeviceCount() {
+    return deviceCount;
+  }
+
+  public Device getDevice(int index) throws SnapshotFormatException {
+    int record = recordOffset(index);
+    int[] layout = new int[CameraLayout.INTS];
+    for (int i = 0; i < layout.length; i++) {
+      layout[i] = buffer.getInt(record + (RECORD_FIELDS + i) * 4);
+    }
+    return new Device(
+        index,
+        readString(buffer.getInt(record)),
+        readString(buffer.getInt(record + 4)),
+        readString(buffer.getInt(record + 8)),
+        new CameraLayout(layout));
+  }
+
+  /** Numbers of the devices of model, in fingerprint order. */
+  public int[] findModel(String model) throws SnapshotFormatException {
+    byte[] key = model.getBytes(StandardCharsets.UTF_8);
+    int first = lowerBound(modelIndex, 0, key);
+    int end = first;
+    while (end < deviceCount && compareAt(indexAt(modelIndex, end), 0, key) == 0) end++;
+    int[] devices = new int[end - first];
+    for (int i = 0; i < devices.length; i++) devices[i] = indexAt(modelIndex, first + i);
+    return devices;
+  }
+
+  /** Number of the device with fingerprint, or -1. */
+  public int findFingerprint(String fingerprint) throws SnapshotFormatException {
+    byte[] key = fingerprint.getBytes(StandardCharsets.UTF_8);
+    int position = lowerBound(fingerprintIndex, 4, key);
+    if (position == deviceCount) return -1;
+    int device = indexAt(fingerprintIndex, position);
+    return compareAt(device, 4, key) == 0 ? device : -1;
+  }
+
+  /**
+   * The count devices with the layouts closest to layout, closest first, none if count is 0 or
+   * less. A linear scan over the mapped records that reads each layout in one bulk copy into a
+   * reused array.
+   */
+  public Match[] nearest(CameraLayout layout, int count) {
+    int[] query = layout.toInts();
+    int[] scratch = new int[CameraLayout.INTS];
+    int[] best = new int[Math.max(0, Math.min(count, deviceCount))];
+    double[] distances = new double[best.length];
+    int found = 0;
+    // A view of its own, so concurrent scans do not share a position
+    IntBuffer ints = buffer.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+    for (int device = 0; device < deviceCount && best.length > 0; device++) {
+      ints.position((HEADER_SIZE + device * RECORD_SIZE) / 4 + RECORD_FIELDS);
+      ints.get(scratch);
+      double distance = CameraLayout.distance(query, scratch);
+      if (found == best.length && distance >= distances[found - 1]) continue;
+      // Insertion into the sorted top list
+      int i = found < best.length ? found++ : found - 1;
+      while (i > 0 && distances[i - 1] > distance) {
+        best[i] = best[i - 1];
+        distances[i] = distances[i - 1];
+        i--;
+      }
+      best[i] = device;
+      distances[i] = distance;
+    }
+    Match[] matches = new Match[found];
+    for (int i = 0; i < found; i++) matches[i] = new Match(best[i], distances[i]);
+    return matches;
+  }
+
+  private int recordOffset(int index) {
+    if (index < 0 || index >= deviceCount) throw new IndexOutOfBoundsException("Device " + index);
+    return HEADER_SIZE + index * RECORD_SIZE;
+  }
+
+  private int indexAt(int index, int position) {
+    return buffer.getInt(index + position * 4);
+  }
+
+  /** First position in an index whose string (at field of the record) is not below key. */
+  private int lowerBound(int index, int field, byte[] key) throws SnapshotFormatException {
+    int low = 0;
+    int high = deviceCount;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compareAt(indexAt(index, middle), field, key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /** Compares the string at field of a device record with key, as unsigned bytes. */
+  private int compareAt(int device, int field, byte[] key) throws SnapshotFormatException {
+    if (device < 0 || device >= deviceCount) {
+      throw new SnapshotFormatException("Bad device number " + device);
+    }
+    int offset = stringOffset(buffer.getInt(HEADER_SIZE + device * RECORD_SIZE + field));
+    int length = buffer.getShort(offset) & 0xFFFF;
+    int common = Math.min(length, key.length);
+    for (int i = 0; i < common; i++) {
+      int a = buffer.get(offset + 2 + i) & 0xFF;
+      int b = key[i] & 0xFF;
+      if (a != b) return a - b;
+    }
+    return length - key.length;
+  }
+
+  private String readString(int reference) throws SnapshotFormatException {
+    int offset = stringOffset(reference);
+    byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+    for (int i = 0; i < bytes.length; i++) bytes[i] = buffer.get(offset + 2 + i);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private int stringOffset(int reference) throws SnapshotFormatException {
+    // In long, so a corrupt reference cannot wrap around into the valid range
+    long offset = (long) strings + reference;
+    if (reference < 0
+        || offset + 2 > stringsEnd
+        || offset + 2 + (buffer.getShort((int) offset) & 0xFFFF) > stringsEnd) {
+      throw new SnapshotFormatException("Bad string reference " + reference);
+    }
+    return (int) offset;
+  }
+
+  /** Compares strings the way the indexes are sorted. */
+  static int compare(String a, String b) {
+    byte[] x = a.getBytes(StandardCharsets.UTF_8);
+    byte[] y = b.getBytes(StandardCharsets.UTF_8);
+    int common = Math.min(x.length, y.length);
+    for (int i = 0; i < common; i++) {
+      int diff = (x[i] & 0xFF) - (y[i] & 0xFF);
+      if (diff != 0) return diff;
+    }
+    return x.length - y.length;
+  }
+}
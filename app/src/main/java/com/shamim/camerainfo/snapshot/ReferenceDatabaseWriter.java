@@ -0,0 +1,131 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link ReferenceDatabase}. Devices with the same non-empty fingerprint are stored once,
+ * the last one added wins.
+ */
+public final class ReferenceDatabaseWriter {
+
+  private static final int MAX_STRING_BYTES = 0xFFFF;
+
+  private static final class Entry {
+    final String model;
+    final String fingerprint;
+    final String soc;
+    final int[] layout;
+
+    Entry(String model, String fingerprint, String soc, int[] layout) {
+      this.model = model;
+      this.fingerprint = fingerprint;
+      this.soc = soc;
+      this.layout = layout;
+    }
+  }
+
+  private final Map<String, Entry> byFingerprint = new LinkedHashMap<>();
+  private final List<Entry> withoutFingerprint = new ArrayList<>();
+
+  public void add(String model, String fingerprint, String soc, CameraLayout layout) {
+    Entry entry =
+        new Entry(
+            truncate(model == null ? "" : model),
+            truncate(fingerprint == null ? "" : fingerprint),
+            truncate(soc == null ? "" : soc),
+            layout.toInts());
+    if (entry.fingerprint.isEmpty()) {
+      withoutFingerprint.add(entry);
+    } else {
+      byFingerprint.put(entry.fingerprint, entry);
+    }
+  }
+
+  public int size() {
+    return byFingerprint.size() + withoutFingerprint.size();
+  }
+
+  public void write(OutputStream stream) throws IOException {
+    // Records in model order, so the devices of one model share pages
+    List<Entry> entries = new ArrayList<>(byFingerprint.values());
+    entries.addAll(withoutFingerprint);
+    Comparator<Entry> byModel =
+        (a, b) -> {
+          int order = ReferenceDatabase.compare(a.model, b.model);
+          return order != 0 ? order : ReferenceDatabase.compare(a.fingerprint, b.fingerprint);
+        };
+    entries.sort(byModel);
+    List<Integer> fingerprintOrder = new ArrayList<>();
+    for (int i = 0; i < entries.size(); i++) fingerprintOrder.add(i);
+    fingerprintOrder.sort(
+        (a, b) ->
+            ReferenceDatabase.compare(entries.get(a).fingerprint, entries.get(b).fingerprint));
+
+    // Strings are stored once each
+    Map<String, Integer> stringOffsets = new HashMap<>();
+    List<byte[]> strings = new ArrayList<>();
+    int stringsSize = 0;
+    int[][] references = new int[entries.size()][3];
+    for (int i = 0; i < entries.size(); i++) {
+      Entry entry = entries.get(i);
+      String[] fields = {entry.model, entry.fingerprint, entry.soc};
+      for (int f = 0; f < fields.length; f++) {
+        Integer offset = stringOffsets.get(fields[f]);
+        if (offset == null) {
+          byte[] bytes = fields[f].getBytes(StandardCharsets.UTF_8);
+          offset = stringsSize;
+          stringOffsets.put(fields[f], offset);
+          strings.add(bytes);
+          stringsSize += 2 + bytes.length;
+        }
+        references[i][f] = offset;
+      }
+    }
+
+    int count = entries.size();
+    int modelIndex = ReferenceDatabase.HEADER_SIZE + count * ReferenceDatabase.RECORD_SIZE;
+    int fingerprintIndex = modelIndex + 4 * count;
+    int stringsOffset = fingerprintIndex + 4 * count;
+
+    DataOutputStream out = new DataOutputStream(stream);
+    out.writeInt(ReferenceDatabase.MAGIC);
+    out.writeInt(ReferenceDatabase.VERSION);
+    out.writeInt(count);
+    out.writeInt(CameraLayout.INTS);
+    out.writeInt(modelIndex);
+    out.writeInt(fingerprintIndex);
+    out.writeInt(stringsOffset);
+    out.writeInt(stringsSize);
+    for (int i = 0; i < count; i++) {
+      for (int reference : references[i]) out.writeInt(reference);
+      int[] layout = entries.get(i).layout;
+      out.writeInt(CameraLayout.cameraCount(layout));
+      for (int value : layout) out.writeInt(value);
+    }
+    // Records are already in model order
+    for (int i = 0; i < count; i++) out.writeInt(i);
+    for (int i : fingerprintOrder) out.writeInt(i);
+    for (byte[] bytes : strings) {
+      out.writeShort(bytes.length);
+      out.write(bytes);
+    }
+    out.flush();
+  }
+
+  /** Cuts a string to what the 16-bit length prefix can hold, on a character boundary. */
+  private static String truncate(String value) {
+    if (value.length() * 3 <= MAX_STRING_BYTES) return value;
+    int end = Math.min(value.length(), MAX_STRING_BYTES / 3);
+    if (end > 0 && Character.isHighSurrogate(value.charAt(end - 1))) end--;
+    return value.substring(0, end);
+  }
+}
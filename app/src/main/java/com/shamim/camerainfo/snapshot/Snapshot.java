@@ -0,0 +1,48 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Camera model of one device: device properties and the characteristics of every camera, as typed
+ * values keyed by name. This package is plain Java so snapshots can be read off the device too.
+ *
+ * <p>Values are one of String, Boolean, Integer, Long, Float, Double, int[], long[], float[] or
+ * String[]. Anything else has to be converted by whoever builds the snapshot.
+ */
+public final class Snapshot {
+
+  /** Version written by {@link SnapshotWriter}. Readers accept this version and older ones. */
+  public static final int FORMAT_VERSION = 1;
+
+  // Camera values the app derives itself, next to the camera2 characteristics keys
+  public static final String DERIVED_PREFIX = "camerainfo.";
+  public static final String LENS_TYPE = DERIVED_PREFIX + "lens.type";
+  public static final String LENS_ZOOM_FACTOR = DERIVED_PREFIX + "lens.zoomFactor";
+  public static final String CAMCORDER_PROFILES = DERIVED_PREFIX + "camcorder.profiles";
+  // Followed by the format name and one of the suffixes, e.g. camerainfo.stream.JPEG.outputSizes
+  public static final String STREAM_PREFIX = DERIVED_PREFIX + "stream.";
+  public static final String OUTPUT_SIZES = ".outputSizes";
+  public static final String MIN_FRAME_DURATIONS = ".minFrameDurations";
+
+  public final Map<String, Object> device = new LinkedHashMap<>();
+  public final List<Camera> cameras = new ArrayList<>();
+
+  public static final class Camera {
+    public final String id;
+    public final Map<String, Object> values = new LinkedHashMap<>();
+
+    public Camera(String id) {
+      this.id = id;
+    }
+  }
+
+  public Camera getCamera(String id) {
+    for (Camera camera : cameras) {
+      if (camera.id.equals(id)) return camera;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,253 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Structural diff of two snapshots. Every (camera, key) value is reduced to a 64-bit hash, so the
+ * two sides are compared with one map lookup per key; a camera whose combined hash is the same on
+ * both sides is skipped without looking at its keys. Values are only touched again to describe
+ * what changed.
+ */
+public final class SnapshotDiff {
+
+  public enum Kind {
+    ADDED,
+    REMOVED,
+    CHANGED
+  }
+
+  /** One added, removed or changed key. key is null when a whole camera was added or removed. */
+  public static final class Change {
+    public final Kind kind;
+    public final String key;
+    public final Object oldValue;
+    public final Object newValue;
+
+    Change(Kind kind, String key, Object oldValue, Object newValue) {
+      this.kind = kind;
+      this.key = key;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+  }
+
+  /** The changes of the device section or of one camera, in key order of the new side. */
+  public static final class Scope {
+    /** The camera id, or null for the device section. */
+    public final String cameraId;
+
+    public final List<Change> changes = new ArrayList<>();
+
+    Scope(String cameraId) {
+      this.cameraId = cameraId;
+    }
+  }
+
+  /** Scopes with at least one change, device first, then cameras in order of the new side. */
+  public final List<Scope> scopes = new ArrayList<>();
+
+  public int unchangedCameras;
+  public int comparedKeys;
+
+  private SnapshotDiff() {}
+
+  public static SnapshotDiff compute(Snapshot before, Snapshot after) {
+    SnapshotDiff diff = new SnapshotDiff();
+    diff.compare(null, before.device, after.device);
+
+    Map<String, Snapshot.Camera> beforeCameras = new LinkedHashMap<>();
+    for (Snapshot.Camera camera : before.cameras) beforeCameras.put(camera.id, camera);
+
+    for (Snapshot.Camera camera : after.cameras) {
+      Snapshot.Camera old = beforeCameras.remove(camera.id);
+      if (old == null) {
+        diff.addScope(camera.id).changes.add(new Change(Kind.ADDED, null, null, camera));
+      } else {
+        diff.compare(camera.id, old.values, camera.values);
+      }
+    }
+    for (Snapshot.Camera camera : beforeCameras.values()) {
+      diff.addScope(camera.id).changes.add(new Change(Kind.REMOVED, null, camera, null));
+    }
+    return diff;
+  }
+
+  public boolean isEmpty() {
+    return scopes.isEmpty();
+  }
+
+  public int getChangeCount() {
+    int count = 0;
+    for (Scope scope : scopes) count += scope.changes.size();
+    return count;
+  }
+
+  private Scope addScope(String cameraId) {
+    Scope scope = new Scope(cameraId);
+    scopes.add(scope);
+    return scope;
+  }
+
+  private void compare(String cameraId, Map<String, Object> before, Map<String, Object> after) {
+    Map<String, Long> beforeHashes = new HashMap<>(before.size() * 2);
+    long beforeHash = 0;
+    for (Map.Entry<String, Object> entry : before.entrySet()) {
+      long hash = hash(entry.getValue());
+      beforeHashes.put(entry.getKey(), hash);
+      beforeHash += mix(entry.getKey().hashCode() * 31L + hash);
+    }
+    long[] afterHashes = new long[after.size()];
+    long afterHash = 0;
+    int index = 0;
+    for (Map.Entry<String, Object> entry : after.entrySet()) {
+      long hash = hash(entry.getValue());
+      afterHashes[index++] = hash;
+      afterHash += mix(entry.getKey().hashCode() * 31L + hash);
+    }
+    comparedKeys += after.size();
+    if (beforeHash == afterHash && before.size() == after.size()) {
+      if (cameraId != null) unchangedCameras++;
+      return;
+    }
+
+    Scope scope = new Scope(cameraId);
+    index = 0;
+    for (Map.Entry<String, Object> entry : after.entrySet()) {
+      long hash = afterHashes[index++];
+      Long old = beforeHashes.remove(entry.getKey());
+      if (old == null) {
+        scope.changes.add(new Change(Kind.ADDED, entry.getKey(), null, entry.getValue()));
+      } else if (old != hash) {
+        scope.changes.add(
+            new Change(
+                Kind.CHANGED, entry.getKey(), before.get(entry.getKey()), entry.getValue()));
+      }
+    }
+    for (String key : beforeHashes.keySet()) {
+      scope.changes.add(new Change(Kind.REMOVED, key, before.get(key), null));
+    }
+    if (!scope.changes.isEmpty()) {
+      scopes.add(scope);
+    } else if (cameraId != null) {
+      unchangedCameras++;
+    }
+  }
+
+  /** Hash of a value and its type, so 1 and 1L or [1] and [1.0] differ. */
+  static long hash(Object value) {
+    if (value == null) return 0;
+    long h = mix(value.getClass().getName().hashCode());
+    if (value instanceof int[]) {
+      for (int element : (int[]) value) h = mix(h * 31 + element);
+    } else if (value instanceof long[]) {
+      for (long element : (long[]) value) h = mix(h * 31 + element);
+    } else if (value instanceof float[]) {
+      for (float element : (float[]) value) h = mix(h * 31 + Float.floatToIntBits(element));
+    } else if (value instanceof String[]) {
+      for (String element : (String[]) value) h = mix(h * 31 + hashString(element));
+    } else if (value instanceof String) {
+      h = mix(h * 31 + hashString((String) value));
+    } else if (value instanceof Float) {
+      h = mix(h * 31 + Float.floatToIntBits((Float) value));
+    } else if (value instanceof Double) {
+      h = mix(h * 31 + Double.doubleToLongBits((Double) value));
+    } else if (value instanceof Number) {
+      h = mix(h * 31 + ((Number) value).longValue());
+    } else {
+      h = mix(h * 31 + value.hashCode());
+    }
+    return h;
+  }
+
+  private static long hashString(String value) {
+    // 64-bit FNV-1a, String.hashCode alone collides too easily
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h = (h ^ value.charAt(i)) * 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /** Finalizer of SplitMix64, spreads every input bit over the whole result. */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Element-level summary of a changed array, or null for other values. Arrays of the same length
+   * list the positions that differ; otherwise the elements only found on one side are listed.
+   */
+  public static String describeArrayChange(Object before, Object after, int maxItems) {
+    if (before == null
+        || after == null
+        || !before.getClass().isArray()
+        || before.getClass() != after.getClass()) {
+      return null;
+    }
+    int oldLength = Array.getLength(before);
+    int newLength = Array.getLength(after);
+    StringBuilder sb = new StringBuilder();
+    if (oldLength == newLength) {
+      int changed = 0;
+      for (int i = 0; i < oldLength; i++) {
+        Object a = Array.get(before, i);
+        Object b = Array.get(after, i);
+        if (Objects.equals(a, b)) continue;
+        if (changed < maxItems) {
+          sb.append(changed == 0 ? "" : ", ").append('[').append(i).append("] ");
+          sb.append(a).append(" -> ").append(b);
+        }
+        changed++;
+      }
+      if (changed > maxItems) sb.append(", ...");
+      return changed + " of " + oldLength + " elements changed: " + sb;
+    }
+
+    // Counted per value, so repeated elements are matched one to one
+    Map<Object, Integer> counts = new HashMap<>();
+    for (int i = 0; i < oldLength; i++) counts.merge(Array.get(before, i), 1, Integer::sum);
+    List<Object> added = new ArrayList<>();
+    for (int i = 0; i < newLength; i++) {
+      Object element = Array.get(after, i);
+      Integer count = counts.get(element);
+      if (count == null) {
+        added.add(element);
+      } else if (count == 1) {
+        counts.remove(element);
+      } else {
+        counts.put(element, count - 1);
+      }
+    }
+    List<Object> removed = new ArrayList<>();
+    for (int i = 0; i < oldLength && counts.size() > 0; i++) {
+      Object element = Array.get(before, i);
+      Integer count = counts.get(element);
+      if (count == null) continue;
+      removed.add(element);
+      if (count == 1) counts.remove(element);
+      else counts.put(element, count - 1);
+    }
+    sb.append(oldLength).append(" -> ").append(newLength).append(" elements");
+    appendElements(sb, "added", added, maxItems);
+    appendElements(sb, "removed", removed, maxItems);
+    return sb.toString();
+  }
+
+  private static void appendElements(
+      StringBuilder sb, String label, List<Object> elements, int maxItems) {
+    if (elements.isEmpty()) return;
+    sb.append(", ").append(elements.size()).append(' ').append(label).append(": ");
+    List<Object> shown = elements.subList(0, Math.min(maxItems, elements.size()));
+    sb.append(Arrays.toString(shown.toArray()));
+    if (elements.size() > maxItems) sb.insert(sb.length() - 1, ", ...");
+  }
+}
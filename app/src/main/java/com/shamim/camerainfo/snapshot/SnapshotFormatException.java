@@ -0,0 +1,13 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.IOException;
+
+/** Thrown when bytes are not a snapshot, or a snapshot of a newer format version. */
+public class SnapshotFormatException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public SnapshotFormatException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,319 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * History of snapshots in a directory. The device section and every camera are stored as separate
+ * objects named after the SHA-256 of their encoding, so a camera that did not change since an
+ * earlier capture is not stored again. An index file lists the entries and their objects:
+ *
+ * <pre>
+ * directory/index         "CISH", version, entry count, then per entry: created (ms), label,
+ *                         device object, camera count, then per camera: id and object
+ * directory/objects/hash  a snapshot holding only the device section or only one camera
+ * </pre>
+ *
+ * All methods are synchronized, so one instance can be shared between threads.
+ */
+public final class SnapshotHistory {
+
+  private static final int INDEX_MAGIC = 0x43495348; // "CISH"
+  private static final int INDEX_VERSION = 1;
+  private static final String INDEX_FILE = "index";
+  private static final String OBJECTS_DIR = "objects";
+
+  /** One capture. Objects are SHA-256 hashes in lower case hex. */
+  public static final class Entry {
+    public final long created;
+    public final String label;
+    public final String deviceObject;
+    public final String[] cameraIds;
+    public final String[] cameraObjects;
+
+    Entry(
+        long created,
+        String label,
+        String deviceObject,
+        String[] cameraIds,
+        String[] cameraObjects) {
+      this.created = created;
+      this.label = label;
+      this.deviceObject = deviceObject;
+      this.cameraIds = cameraIds;
+      this.cameraObjects = cameraObjects;
+    }
+  }
+
+  /** Result of {@link #add}: the new entry and how many of its objects were not stored yet. */
+  public static final class AddResult {
+    public final Entry entry;
+    public final int newObjects;
+    public final int totalObjects;
+
+    AddResult(Entry entry, int newObjects, int totalObjects) {
+      this.entry = entry;
+      this.newObjects = newObjects;
+      this.totalObjects = totalObjects;
+    }
+  }
+
+  private final File directory;
+  private final File objects;
+  private List<Entry> entries;
+
+  public SnapshotHistory(File directory) {
+    this.directory = directory;
+    this.objects = new File(directory, OBJECTS_DIR);
+  }
+
+  /** Entries from oldest to newest. */
+  public synchronized List<Entry> list() throws IOException {
+    return Collections.unmodifiableList(new ArrayList<>(entries()));
+  }
+
+  /** Stores a snapshot, writing only the objects that are not in the store yet. */
+  public synchronized AddResult add(Snapshot snapshot, String label, long created)
+      throws IOException {
+    if (!objects.isDirectory() && !objects.mkdirs()) {
+      throw new IOException("Cannot create " + objects);
+    }
+    int newObjects = 0;
+
+    Snapshot device = new Snapshot();
+    device.device.putAll(snapshot.device);
+    byte[] deviceBytes = SnapshotWriter.toBytes(device);
+    String deviceObject = hash(deviceBytes);
+    if (storeObject(deviceObject, deviceBytes)) newObjects++;
+
+    String[] cameraIds = new String[snapshot.cameras.size()];
+    String[] cameraObjects = new String[cameraIds.length];
+    for (int i = 0; i < cameraIds.length; i++) {
+      Snapshot camera = new Snapshot();
+      camera.cameras.add(snapshot.cameras.get(i));
+      byte[] bytes = SnapshotWriter.toBytes(camera);
+      cameraIds[i] = snapshot.cameras.get(i).id;
+      cameraObjects[i] = hash(bytes);
+      if (storeObject(cameraObjects[i], bytes)) newObjects++;
+    }
+
+    Entry entry = new Entry(created, label, deviceObject, cameraIds, cameraObjects);
+    List<Entry> updated = new ArrayList<>(entries());
+    updated.add(entry);
+    writeIndex(updated);
+    return new AddResult(entry, newObjects, cameraIds.length + 1);
+  }
+
+  /** Loads an entry back into a snapshot. Objects are checked against their hash. */
+  public synchronized Snapshot load(Entry entry) throws IOException {
+    Snapshot snapshot = new Snapshot();
+    snapshot.device.putAll(readObject(entry.deviceObject).readDevice());
+    for (String object : entry.cameraObjects) {
+      SnapshotReader reader = readObject(object);
+      for (int i = 0; i < reader.getCameraCount(); i++) {
+        snapshot.cameras.add(reader.readCamera(i));
+      }
+    }
+    return snapshot;
+  }
+
+  public synchronized void delete(Entry entry) throws IOException {
+    List<Entry> updated = new ArrayList<>(entries());
+    if (!updated.remove(entry)) return;
+    writeIndex(updated);
+    collectGarbage();
+  }
+
+  /**
+   * Drops entries older than maxAgeMillis, then the oldest entries until the objects take at most
+   * maxBytes. The newest entry is always kept. Zero or less disables a limit. Returns the number of
+   * entries dropped.
+   */
+  public synchronized int evict(long maxAgeMillis, long maxBytes, long now) throws IOException {
+    List<Entry> updated = new ArrayList<>(entries());
+    int before = updated.size();
+    if (maxAgeMillis > 0) {
+      while (updated.size() > 1 && now - updated.get(0).created > maxAgeMillis) {
+        updated.remove(0);
+      }
+    }
+    if (maxBytes > 0) {
+      while (updated.size() > 1 && sizeOf(updated) > maxBytes) {
+        updated.remove(0);
+      }
+    }
+    if (updated.size() == before) return 0;
+    writeIndex(updated);
+    collectGarbage();
+    return before - updated.size();
+  }
+
+  /** Bytes taken by the objects of all entries, each object counted once. */
+  public synchronized long getSize() throws IOException {
+    return sizeOf(entries());
+  }
+
+  private long sizeOf(List<Entry> list) {
+    long size = 0;
+    for (String object : referencedObjects(list)) size += objectFile(object).length();
+    return size;
+  }
+
+  private static Set<String> referencedObjects(List<Entry> list) {
+    Set<String> referenced = new HashSet<>();
+    for (Entry entry : list) {
+      referenced.add(entry.deviceObject);
+      referenced.addAll(Arrays.asList(entry.cameraObjects));
+    }
+    return referenced;
+  }
+
+  /** Deletes objects no entry refers to, including leftovers of interrupted writes. */
+  private void collectGarbage() throws IOException {
+    File[] files = objects.listFiles();
+    if (files == null) return;
+    Set<String> referenced = referencedObjects(entries());
+    for (File file : files) {
+      if (!referenced.contains(file.getName())) file.delete();
+    }
+  }
+
+  private File objectFile(String object) {
+    return new File(objects, object);
+  }
+
+  /** Writes an object unless it exists. Returns whether it was written. */
+  private boolean storeObject(String object, byte[] bytes) throws IOException {
+    File file = objectFile(object);
+    if (file.length() == bytes.length) return false;
+    File partial = new File(objects, object + ".part");
+    try (OutputStream out = new FileOutputStream(partial)) {
+      out.write(bytes);
+    }
+    replace(partial, file);
+    return true;
+  }
+
+  private SnapshotReader readObject(String object) throws IOException {
+    byte[] bytes;
+    try (InputStream in = new FileInputStream(objectFile(object))) {
+      bytes = readFully(in);
+    }
+    if (!hash(bytes).equals(object)) {
+      throw new SnapshotFormatException("Object " + object + " is corrupt");
+    }
+    return new SnapshotReader(bytes);
+  }
+
+  private List<Entry> entries() throws IOException {
+    if (entries == null) entries = readIndex();
+    return entries;
+  }
+
+  private List<Entry> readIndex() throws IOException {
+    File file = new File(directory, INDEX_FILE);
+    List<Entry> list = new ArrayList<>();
+    if (!file.exists()) return list;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != INDEX_MAGIC) throw new SnapshotFormatException("Not a history index");
+      int version = in.readInt();
+      if (version < 1 || version > INDEX_VERSION) {
+        throw new SnapshotFormatException("Unsupported history version " + version);
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long created = in.readLong();
+        String label = in.readUTF();
+        String deviceObject = in.readUTF();
+        int cameras = in.readInt();
+        if (cameras < 0 || cameras > 4096) throw new SnapshotFormatException("Bad camera count");
+        String[] cameraIds = new String[cameras];
+        String[] cameraObjects = new String[cameras];
+        for (int c = 0; c < cameras; c++) {
+          cameraIds[c] = in.readUTF();
+          cameraObjects[c] = in.readUTF();
+        }
+        list.add(new Entry(created, label, deviceObject, cameraIds, cameraObjects));
+      }
+    } catch (EOFException e) {
+      throw new SnapshotFormatException("Truncated history index");
+    }
+    return list;
+  }
+
+  /** Replaces the index in one rename, so a crash leaves either the old or the new index. */
+  private void writeIndex(List<Entry> list) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create " + directory);
+    }
+    File file = new File(directory, INDEX_FILE);
+    File partial = new File(directory, INDEX_FILE + ".part");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(INDEX_VERSION);
+      out.writeInt(list.size());
+      for (Entry entry : list) {
+        out.writeLong(entry.created);
+        out.writeUTF(entry.label);
+        out.writeUTF(entry.deviceObject);
+        out.writeInt(entry.cameraIds.length);
+        for (int c = 0; c < entry.cameraIds.length; c++) {
+          out.writeUTF(entry.cameraIds[c]);
+          out.writeUTF(entry.cameraObjects[c]);
+        }
+      }
+    }
+    replace(partial, file);
+    entries = list;
+  }
+
+  private static void replace(File partial, File file) throws IOException {
+    if (file.exists() && !file.delete()) throw new IOException("Cannot replace " + file);
+    if (!partial.renameTo(file)) throw new IOException("Cannot rename " + partial);
+  }
+
+  static byte[] readFully(InputStream in) throws IOException {
+    byte[] buffer = new byte[16 * 1024];
+    int size = 0;
+    for (int n; (n = in.read(buffer, size, buffer.length - size)) > 0; ) {
+      size += n;
+      if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+    }
+    return Arrays.copyOf(buffer, size);
+  }
+
+  static String hash(byte[] bytes) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] sum = digest.digest(bytes);
+    char[] hex = new char[sum.length * 2];
+    for (int i = 0; i < sum.length; i++) {
+      hex[2 * i] = Character.forDigit((sum[i] >> 4) & 0xF, 16);
+      hex[2 * i + 1] = Character.forDigit(sum[i] & 0xF, 16);
+    }
+    return new String(hex);
+  }
+}
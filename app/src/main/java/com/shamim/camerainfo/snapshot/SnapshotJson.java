@@ -0,0 +1,168 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a snapshot as JSON:
+ *
+ * <pre>
+ * {"schema": "camerainfo.snapshot", "schemaVersion": 1, "formatVersion": 1,
+ *  "device": {...},
+ *  "cameras": [{"id": "0",
+ *               "characteristics": {camera2 key: value, ...},
+ *               "lens": {"type": "Wide", "zoomFactor": 1.0},
+ *               "streamConfigs": [{"format": "JPEG", "outputSizes": [[w, h], ...],
+ *                                  "minFrameDurations": [ns, ...]}, ...],
+ *               "camcorderProfiles": [...]}, ...]}
+ * </pre>
+ *
+ * Fields are only ever added within a schema version; removing or changing one bumps {@link
+ * #SCHEMA_VERSION}.
+ */
+public final class SnapshotJson {
+
+  public static final String SCHEMA = "camerainfo.snapshot";
+  public static final int SCHEMA_VERSION = 1;
+
+  private SnapshotJson() {}
+
+  /** Decodes and writes one camera at a time, so only one camera is held in memory. */
+  public static void write(SnapshotReader reader, Writer out) throws IOException {
+    JsonWriter json = new JsonWriter(out);
+    beginDocument(json, reader.getVersion(), reader.readDevice());
+    for (int i = 0; i < reader.getCameraCount(); i++) {
+      writeCamera(json, reader.readCamera(i));
+    }
+    endDocument(json);
+  }
+
+  public static void write(Snapshot snapshot, Writer out) throws IOException {
+    JsonWriter json = new JsonWriter(out);
+    beginDocument(json, Snapshot.FORMAT_VERSION, snapshot.device);
+    for (Snapshot.Camera camera : snapshot.cameras) writeCamera(json, camera);
+    endDocument(json);
+  }
+
+  private static void beginDocument(JsonWriter json, int formatVersion, Map<String, Object> device)
+      throws IOException {
+    json.beginObject();
+    json.name("schema").value(SCHEMA);
+    json.name("schemaVersion").value(SCHEMA_VERSION);
+    json.name("formatVersion").value(formatVersion);
+    json.name("device").beginObject();
+    for (Map.Entry<String, Object> entry : device.entrySet()) {
+      json.name(entry.getKey());
+      writeValue(json, entry.getValue());
+    }
+    json.endObject();
+    json.name("cameras").beginArray();
+  }
+
+  private static void endDocument(JsonWriter json) throws IOException {
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  private static void writeCamera(JsonWriter json, Snapshot.Camera camera) throws IOException {
+    json.beginObject();
+    json.name("id").value(camera.id);
+
+    // Derived values get their own sections, stream configs grouped by format
+    Map<String, Object> values = camera.values;
+    Map<String, int[]> sizes = new LinkedHashMap<>();
+    Map<String, long[]> durations = new LinkedHashMap<>();
+    json.name("characteristics").beginObject();
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      String key = entry.getKey();
+      Object value = entry.getValue();
+      if (key.startsWith(Snapshot.STREAM_PREFIX)) {
+        if (key.endsWith(Snapshot.OUTPUT_SIZES) && value instanceof int[]) {
+          sizes.put(formatOf(key, Snapshot.OUTPUT_SIZES), (int[]) value);
+        } else if (key.endsWith(Snapshot.MIN_FRAME_DURATIONS) && value instanceof long[]) {
+          durations.put(formatOf(key, Snapshot.MIN_FRAME_DURATIONS), (long[]) value);
+        }
+      } else if (!key.startsWith(Snapshot.DERIVED_PREFIX)) {
+        json.name(key);
+        writeValue(json, value);
+      }
+    }
+    json.endObject();
+
+    if (values.containsKey(Snapshot.LENS_TYPE)) {
+      json.name("lens").beginObject();
+      json.name("type");
+      writeValue(json, values.get(Snapshot.LENS_TYPE));
+      json.name("zoomFactor");
+      writeValue(json, values.get(Snapshot.LENS_ZOOM_FACTOR));
+      json.endObject();
+    }
+
+    json.name("streamConfigs").beginArray();
+    for (Map.Entry<String, int[]> entry : sizes.entrySet()) {
+      int[] packed = entry.getValue();
+      json.beginObject();
+      json.name("format").value(entry.getKey());
+      json.name("outputSizes").beginArray();
+      for (int i = 0; i + 1 < packed.length; i += 2) {
+        json.beginArray().value(packed[i]).value(packed[i + 1]).endArray();
+      }
+      json.endArray();
+      long[] minDurations = durations.get(entry.getKey());
+      if (minDurations != null) {
+        json.name("minFrameDurations");
+        writeValue(json, minDurations);
+      }
+      json.endObject();
+    }
+    json.endArray();
+
+    Object profiles = values.get(Snapshot.CAMCORDER_PROFILES);
+    if (profiles != null) {
+      json.name("camcorderProfiles");
+      writeValue(json, profiles);
+    }
+    json.endObject();
+  }
+
+  private static String formatOf(String key, String suffix) {
+    return key.substring(Snapshot.STREAM_PREFIX.length(), key.length() - suffix.length());
+  }
+
+  private static void writeValue(JsonWriter json, Object value) throws IOException {
+    if (value == null) {
+      json.nullValue();
+    } else if (value instanceof String) {
+      json.value((String) value);
+    } else if (value instanceof Boolean) {
+      json.value((Boolean) value);
+    } else if (value instanceof Integer || value instanceof Long) {
+      json.value(((Number) value).longValue());
+    } else if (value instanceof Float) {
+      json.value((float) (Float) value);
+    } else if (value instanceof Double) {
+      json.value((double) (Double) value);
+    } else if (value instanceof int[]) {
+      json.beginArray();
+      for (int element : (int[]) value) json.value(element);
+      json.endArray();
+    } else if (value instanceof long[]) {
+      json.beginArray();
+      for (long element : (long[]) value) json.value(element);
+      json.endArray();
+    } else if (value instanceof float[]) {
+      json.beginArray();
+      for (float element : (float[]) value) json.value(element);
+      json.endArray();
+    } else if (value instanceof String[]) {
+      json.beginArray();
+      for (String element : (String[]) value) json.value(element);
+      json.endArray();
+    } else {
+      json.value(value.toString());
+    }
+  }
+}
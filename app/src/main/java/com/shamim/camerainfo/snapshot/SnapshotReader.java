@@ -0,0 +1,252 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the format written by {@link SnapshotWriter}. Opening a snapshot decodes only the header,
+ * dictionary and camera table; each camera is decoded when it is asked for.
+ */
+public final class SnapshotReader {
+
+  private final byte[] data;
+  private int position;
+
+  private final int version;
+  private final String[] dictionary;
+  private final int deviceStart;
+  private final String[] cameraIds;
+  private final int[] cameraOffsets;
+  private final int[] cameraLengths;
+  private final int cameraDataStart;
+
+  public SnapshotReader(byte[] data) throws SnapshotFormatException {
+    this.data = data;
+    try {
+      for (byte b : SnapshotWriter.MAGIC) {
+        if (readByte() != b) throw new SnapshotFormatException("Not a snapshot");
+      }
+      version = (int) readVarint();
+      if (version < 1 || version > Snapshot.FORMAT_VERSION) {
+        throw new SnapshotFormatException("Unsupported snapshot version " + version);
+      }
+
+      dictionary = new String[readCount()];
+      for (int i = 0; i < dictionary.length; i++) {
+        int length = readCount();
+        checkAvailable(length);
+        dictionary[i] = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+      }
+
+      // The device entries are skipped now and decoded on request
+      deviceStart = position;
+      skipEntries();
+
+      int cameraCount = readCount();
+      cameraIds = new String[cameraCount];
+      cameraOffsets = new int[cameraCount];
+      cameraLengths = new int[cameraCount];
+      for (int i = 0; i < cameraCount; i++) {
+        cameraIds[i] = readString();
+        cameraOffsets[i] = readInt();
+        cameraLengths[i] = readInt();
+      }
+      cameraDataStart = position;
+      for (int i = 0; i < cameraCount; i++) {
+        if (cameraOffsets[i] < 0
+            || cameraLengths[i] < 0
+            || (long) cameraDataStart + cameraOffsets[i] + cameraLengths[i] > data.length) {
+          throw new SnapshotFormatException("Camera " + cameraIds[i] + " is out of bounds");
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new SnapshotFormatException("Truncated snapshot");
+    }
+  }
+
+  public static SnapshotReader read(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+    byte[] buffer = new byte[16 * 1024];
+    for (int n; (n = in.read(buffer)) > 0; ) bytes.write(buffer, 0, n);
+    return new SnapshotReader(bytes.toByteArray());
+  }
+
+  /**
+   * Whether a stream starts with the snapshot magic. The stream must support mark and reset; it is
+   * left at the position it had.
+   */
+  public static boolean hasMagic(InputStream in) throws IOException {
+    in.mark(SnapshotWriter.MAGIC.length);
+    try {
+      for (byte b : SnapshotWriter.MAGIC) {
+        if (in.read() != (b & 0xFF)) return false;
+      }
+      return true;
+    } finally {
+      in.reset();
+    }
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public int getCameraCount() {
+    return cameraIds.length;
+  }
+
+  public String getCameraId(int camera) {
+    return cameraIds[camera];
+  }
+
+  /** Index of the camera with this id, or -1. */
+  public int indexOfCamera(String id) {
+    for (int i = 0; i < cameraIds.length; i++) {
+      if (cameraIds[i].equals(id)) return i;
+    }
+    return -1;
+  }
+
+  public synchronized Map<String, Object> readDevice() throws SnapshotFormatException {
+    position = deviceStart;
+    return readEntriesChecked();
+  }
+
+  /** Decodes one camera without touching the data of the others. */
+  public synchronized Snapshot.Camera readCamera(int camera) throws SnapshotFormatException {
+    position = cameraDataStart + cameraOffsets[camera];
+    Snapshot.Camera result = new Snapshot.Camera(cameraIds[camera]);
+    result.values.putAll(readEntriesChecked());
+    return result;
+  }
+
+  public Snapshot readAll() throws SnapshotFormatException {
+    Snapshot snapshot = new Snapshot();
+    snapshot.device.putAll(readDevice());
+    for (int i = 0; i < cameraIds.length; i++) {
+      snapshot.cameras.add(readCamera(i));
+    }
+    return snapshot;
+  }
+
+  private Map<String, Object> readEntriesChecked() throws SnapshotFormatException {
+    try {
+      return readEntries();
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new SnapshotFormatException("Truncated snapshot");
+    }
+  }
+
+  private Map<String, Object> readEntries() throws SnapshotFormatException {
+    int count = readCount();
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      String key = readString();
+      values.put(key, readValue(readByte()));
+    }
+    return values;
+  }
+
+  private void skipEntries() throws SnapshotFormatException {
+    int count = readCount();
+    for (int i = 0; i < count; i++) {
+      readVarint();
+      readValue(readByte());
+    }
+  }
+
+  private Object readValue(int type) throws SnapshotFormatException {
+    switch (type) {
+      case SnapshotWriter.TYPE_STRING:
+        return readString();
+      case SnapshotWriter.TYPE_BOOLEAN:
+        return readByte() != 0;
+      case SnapshotWriter.TYPE_INT:
+        return (int) readSignedVarint();
+      case SnapshotWriter.TYPE_LONG:
+        return readSignedVarint();
+      case SnapshotWriter.TYPE_FLOAT:
+        return Float.intBitsToFloat(readInt());
+      case SnapshotWriter.TYPE_DOUBLE:
+        return Double.longBitsToDouble(((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL));
+      case SnapshotWriter.TYPE_INT_ARRAY:
+        {
+          int[] array = new int[readCount()];
+          for (int i = 0; i < array.length; i++) array[i] = (int) readSignedVarint();
+          return array;
+        }
+      case SnapshotWriter.TYPE_LONG_ARRAY:
+        {
+          long[] array = new long[readCount()];
+          for (int i = 0; i < array.length; i++) array[i] = readSignedVarint();
+          return array;
+        }
+      case SnapshotWriter.TYPE_FLOAT_ARRAY:
+        {
+          float[] array = new float[readCount()];
+          for (int i = 0; i < array.length; i++) array[i] = Float.intBitsToFloat(readInt());
+          return array;
+        }
+      case SnapshotWriter.TYPE_STRING_ARRAY:
+        {
+          String[] array = new String[readCount()];
+          for (int i = 0; i < array.length; i++) array[i] = readString();
+          return array;
+        }
+      default:
+        throw new SnapshotFormatException("Unknown value type " + type);
+    }
+  }
+
+  private String readString() throws SnapshotFormatException {
+    long index = readVarint();
+    if (index < 0 || index >= dictionary.length) {
+      throw new SnapshotFormatException("Bad dictionary index " + index);
+    }
+    return dictionary[(int) index];
+  }
+
+  /** A length or count, checked against the bytes left so corrupt data cannot allocate much. */
+  private int readCount() throws SnapshotFormatException {
+    long count = readVarint();
+    if (count < 0 || count > data.length - position) {
+      throw new SnapshotFormatException("Bad count " + count);
+    }
+    return (int) count;
+  }
+
+  private void checkAvailable(int length) throws SnapshotFormatException {
+    if (length > data.length - position) throw new SnapshotFormatException("Truncated snapshot");
+  }
+
+  private int readByte() {
+    return data[position++];
+  }
+
+  private long readVarint() throws SnapshotFormatException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = data[position++];
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new SnapshotFormatException("Varint too long");
+  }
+
+  private long readSignedVarint() throws SnapshotFormatException {
+    long value = readVarint();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private int readInt() {
+    return ((data[position++] & 0xFF) << 24)
+        | ((data[position++] & 0xFF) << 16)
+        | ((data[position++] & 0xFF) << 8)
+        | (data[position++] & 0xFF);
+  }
+}
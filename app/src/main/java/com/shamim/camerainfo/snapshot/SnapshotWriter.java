@@ -0,0 +1,223 @@
+package com.shamim.camerainfo.snapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a {@link Snapshot} in the binary snapshot format:
+ *
+ * <pre>
+ * magic        "CISN"
+ * version      varint
+ * dictionary   varint count, then each string as varint byte length and UTF-8 bytes
+ * device       entries
+ * camera table varint count, then per camera: id (varint dictionary index), offset and length
+ *              (4 bytes each, big endian, offset from the start of the camera data)
+ * camera data  the entries of every camera, back to back
+ *
+ * entries      varint count, then per entry: key (varint dictionary index), type byte, value
+ * </pre>
+ *
+ * Keys and string values are stored once in the dictionary and referenced by index. Ints and longs
+ * are zigzag varints, floats and doubles are raw IEEE bits, arrays are a varint count followed by
+ * their packed elements. The camera table lets a reader decode a single camera without the others.
+ */
+public final class SnapshotWriter {
+
+  static final byte[] MAGIC = {'C', 'I', 'S', 'N'};
+
+  static final int TYPE_STRING = 1;
+  static final int TYPE_BOOLEAN = 2;
+  static final int TYPE_INT = 3;
+  static final int TYPE_LONG = 4;
+  static final int TYPE_FLOAT = 5;
+  static final int TYPE_DOUBLE = 6;
+  static final int TYPE_INT_ARRAY = 7;
+  static final int TYPE_LONG_ARRAY = 8;
+  static final int TYPE_FLOAT_ARRAY = 9;
+  static final int TYPE_STRING_ARRAY = 10;
+
+  private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+  private final List<String> dictionary = new ArrayList<>();
+
+  private SnapshotWriter() {}
+
+  public static byte[] toBytes(Snapshot snapshot) {
+    return new SnapshotWriter().encode(snapshot).toByteArray();
+  }
+
+  public static void write(Snapshot snapshot, OutputStream out) throws IOException {
+    new SnapshotWriter().encode(snapshot).writeTo(out);
+  }
+
+  private ByteSink encode(Snapshot snapshot) {
+    // Entries are encoded first so the dictionary is complete when the header is written
+    ByteSink device = new ByteSink(1024);
+    writeEntries(device, snapshot.device);
+
+    ByteSink cameras = new ByteSink(16 * 1024);
+    int[] ids = new int[snapshot.cameras.size()];
+    int[] offsets = new int[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      Snapshot.Camera camera = snapshot.cameras.get(i);
+      ids[i] = indexOf(camera.id);
+      offsets[i] = cameras.size();
+      writeEntries(cameras, camera.values);
+    }
+
+    ByteSink out = new ByteSink(device.size() + cameras.size() + 16 * dictionary.size() + 64);
+    out.write(MAGIC, 0, MAGIC.length);
+    out.writeVarint(Snapshot.FORMAT_VERSION);
+    out.writeVarint(dictionary.size());
+    for (String string : dictionary) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      out.writeVarint(bytes.length);
+      out.write(bytes, 0, bytes.length);
+    }
+    out.write(device.buffer, 0, device.size());
+    out.writeVarint(ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      int end = i + 1 < ids.length ? offsets[i + 1] : cameras.size();
+      out.writeVarint(ids[i]);
+      out.writeInt(offsets[i]);
+      out.writeInt(end - offsets[i]);
+    }
+    out.write(cameras.buffer, 0, cameras.size());
+    return out;
+  }
+
+  private int indexOf(String string) {
+    Integer index = dictionaryIndex.get(string);
+    if (index == null) {
+      index = dictionary.size();
+      dictionary.add(string);
+      dictionaryIndex.put(string, index);
+    }
+    return index;
+  }
+
+  private void writeEntries(ByteSink out, Map<String, Object> values) {
+    out.writeVarint(values.size());
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      out.writeVarint(indexOf(entry.getKey()));
+      writeValue(out, entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void writeValue(ByteSink out, String key, Object value) {
+    if (value instanceof String) {
+      out.writeByte(TYPE_STRING);
+      out.writeVarint(indexOf((String) value));
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeByte((Boolean) value ? 1 : 0);
+    } else if (value instanceof Integer) {
+      out.writeByte(TYPE_INT);
+      out.writeSignedVarint((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(TYPE_LONG);
+      out.writeSignedVarint((Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(TYPE_FLOAT);
+      out.writeInt(Float.floatToIntBits((Float) value));
+    } else if (value instanceof Double) {
+      out.writeByte(TYPE_DOUBLE);
+      out.writeLong(Double.doubleToLongBits((Double) value));
+    } else if (value instanceof int[]) {
+      int[] array = (int[]) value;
+      out.writeByte(TYPE_INT_ARRAY);
+      out.writeVarint(array.length);
+      for (int element : array) out.writeSignedVarint(element);
+    } else if (value instanceof long[]) {
+      long[] array = (long[]) value;
+      out.writeByte(TYPE_LONG_ARRAY);
+      out.writeVarint(array.length);
+      for (long element : array) out.writeSignedVarint(element);
+    } else if (value instanceof float[]) {
+      float[] array = (float[]) value;
+      out.writeByte(TYPE_FLOAT_ARRAY);
+      out.writeVarint(array.length);
+      for (float element : array) out.writeInt(Float.floatToIntBits(element));
+    } else if (value instanceof String[]) {
+      String[] array = (String[]) value;
+      out.writeByte(TYPE_STRING_ARRAY);
+      out.writeVarint(array.length);
+      for (String element : array) out.writeVarint(indexOf(element));
+    } else {
+      throw new IllegalArgumentException(
+          "Unsupported value for " + key + ": " + (value == null ? null : value.getClass()));
+    }
+  }
+
+  /** Growable byte buffer with the encodings of the format. */
+  private static final class ByteSink {
+    byte[] buffer;
+    private int size;
+
+    ByteSink(int capacity) {
+      buffer = new byte[Math.max(16, capacity)];
+    }
+
+    int size() {
+      return size;
+    }
+
+    private void ensure(int extra) {
+      if (size + extra > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(size + extra, buffer.length * 2));
+      }
+    }
+
+    void writeByte(int value) {
+      ensure(1);
+      buffer[size++] = (byte) value;
+    }
+
+    void write(byte[] bytes, int offset, int length) {
+      ensure(length);
+      System.arraycopy(bytes, offset, buffer, size, length);
+      size += length;
+    }
+
+    void writeVarint(long value) {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[size++] = (byte) value;
+    }
+
+    /** Zigzag encoded, so small negative numbers stay short. */
+    void writeSignedVarint(long value) {
+      writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    void writeInt(int value) {
+      ensure(4);
+      buffer[size++] = (byte) (value >>> 24);
+      buffer[size++] = (byte) (value >>> 16);
+      buffer[size++] = (byte) (value >>> 8);
+      buffer[size++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, size);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+      out.write(buffer, 0, size);
+    }
+  }
+}
@@ -2,83 +2,54 @@ package com.shamim.camerainfo.util;
 
 import android.text.Spannable;
 import android.text.SpannableStringBuilder;
-import android.text.style.ForegroundColorSpan;
 import com.shamim.camerainfo.activity.*;
 import com.shamim.camerainfo.c2api_key.*;
 import com.shamim.camerainfo.exception_catcher.*;
 import com.shamim.camerainfo.preference.*;
 import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.report.*;
 import com.shamim.camerainfo.update_checker.*;
 
 public class ColoredTextHelper {
 
-  public static SpannableStringBuilder setColoredText(
-      String fullText, int keyColor, int separatorColor, int valueColor) {
-    SpannableStringBuilder spannable = new SpannableStringBuilder();
-
-    // Split with limit to preserve trailing newlines
-    String[] lines = fullText.split("\n", -1);
-
-    for (int i = 0; i < lines.length; i++) {
-      String line = lines[i];
-      boolean isLastLine = i == lines.length - 1;
-
-      if (line.isEmpty()) {
-        if (!isLastLine) {
-          spannable.append("\n");
-        }
-        continue;
-      }
-
-      // Find separator index in one pass
-      int separatorIndex = -1;
-      char separatorChar = '\0';
-      for (int j = 0; j < line.length(); j++) {
-        char c = line.charAt(j);
-        if (c == '=' || c == ':') {
-          separatorIndex = j;
-          separatorChar = c;
-          break;
-        }
-      }
+  /**
+   * Colors one report section with {@link RoleColorSpan}s, so it follows {@link ReportPalette}
+   * and never has to be colored again when the theme changes.
+   */
+  public static SpannableStringBuilder colorSection(ReportSection section) {
+    SpannableStringBuilder spannable = new SpannableStringBuilder(section.text);
+    applyRoles(spannable, section.fields, section.fieldCount);
+    return spannable;
+  }
 
-      if (separatorIndex != -1) {
-        // Key, separator, and value
-        String key = line.substring(0, separatorIndex);
-        String separator = String.valueOf(separatorChar);
-        String value = line.substring(separatorIndex + 1);
+  public static void applyRoles(Spannable spannable, int[] fields, int fieldCount) {
+    for (int i = 0; i < fieldCount; i++) {
+      int index = i * ReportBuilder.FIELD_STRIDE;
+      int keyStart = fields[index + ReportBuilder.FIELD_KEY_START];
+      int separator = fields[index + ReportBuilder.FIELD_SEPARATOR];
+      int valueEnd = fields[index + ReportBuilder.FIELD_VALUE_END];
 
-        int start = spannable.length();
-        spannable.append(key);
+      if (separator > keyStart) {
         spannable.setSpan(
-            new ForegroundColorSpan(keyColor),
-            start,
-            start + key.length(),
+            new RoleColorSpan(ReportPalette.ROLE_KEY),
+            keyStart,
+            separator,
             Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+      }
 
-        start = spannable.length();
-        spannable.append(separator);
-        spannable.setSpan(
-            new ForegroundColorSpan(separatorColor),
-            start,
-            start + 1,
-            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+      spannable.setSpan(
+          new RoleColorSpan(ReportPalette.ROLE_SEPARATOR),
+          separator,
+          separator + 1,
+          Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
 
-        start = spannable.length();
-        spannable.append(value);
+      if (valueEnd > separator + 1) {
         spannable.setSpan(
-            new ForegroundColorSpan(valueColor),
-            start,
-            start + value.length(),
+            new RoleColorSpan(ReportPalette.ROLE_VALUE),
+            separator + 1,
+            valueEnd,
             Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-      } else {
-        spannable.append(line);
-      }
-
-      if (!isLastLine) {
-        spannable.append("\n");
       }
     }
-    return spannable;
   }
 }
@@ -177,8 +177,10 @@ public class DeviceInfo {
   }
 
   public static String getDeviceInfoText(Context context) {
-    int logmode = SharedPrefValues.getValue("pref_log_mode", 0);
+    return getDeviceInfoText(context, SharedPrefValues.getValue("pref_log_mode", 0));
+  }
 
+  public static String getDeviceInfoText(Context context, int logmode) {
     if (logmode == 0) {
       return getShortDeviceInfo();
     } else {
@@ -0,0 +1,41 @@
+package com.shamim.camerainfo.util;
+
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.report.*;
+import com.shamim.camerainfo.update_checker.*;
+
+/**
+ * Theme colors of the parts of a report line. Report spans only name a role and read its color
+ * here when they are drawn, so a theme change swaps the palette instead of recoloring the text.
+ */
+public final class ReportPalette {
+
+  public static final int ROLE_KEY = 0;
+  public static final int ROLE_SEPARATOR = 1;
+  public static final int ROLE_VALUE = 2;
+
+  // Replaced as a whole, so a draw never sees half of an old and half of a new palette
+  private static volatile int[] colors = {0xFF000000, 0xFF000000, 0xFF000000};
+
+  private ReportPalette() {}
+
+  public static int getColor(int role) {
+    return colors[role];
+  }
+
+  /** Sets the colors of the three roles. Returns whether any of them changed. */
+  public static boolean setColors(int keyColor, int separatorColor, int valueColor) {
+    int[] current = colors;
+    if (current[ROLE_KEY] == keyColor
+        && current[ROLE_SEPARATOR] == separatorColor
+        && current[ROLE_VALUE] == valueColor) {
+      return false;
+    }
+    colors = new int[] {keyColor, separatorColor, valueColor};
+    return true;
+  }
+}
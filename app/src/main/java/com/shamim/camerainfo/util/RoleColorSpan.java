@@ -0,0 +1,30 @@
+package com.shamim.camerainfo.util;
+
+import android.text.TextPaint;
+import android.text.style.CharacterStyle;
+import android.text.style.UpdateAppearance;
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.report.*;
+import com.shamim.camerainfo.update_checker.*;
+
+/**
+ * Text color taken from a {@link ReportPalette} role at draw time. It only affects appearance, so
+ * a palette change needs a redraw but no new layout.
+ */
+public final class RoleColorSpan extends CharacterStyle implements UpdateAppearance {
+
+  public final int role;
+
+  public RoleColorSpan(int role) {
+    this.role = role;
+  }
+
+  @Override
+  public void updateDrawState(TextPaint paint) {
+    paint.setColor(ReportPalette.getColor(role));
+  }
+}
@@ -0,0 +1,79 @@
+package com.shamim.camerainfo.util;
+
+import android.util.Log;
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import java.util.Locale;
+
+/**
+ * Measured search latency per report size, used to pick the search-as-you-type debounce. Reports
+ * are bucketed by the power of two of their size in KB and each bucket keeps a moving average, so
+ * a small report searches on every keystroke while a slow one backs off.
+ */
+public final class SearchLatency {
+
+  private static final String TAG = "SearchLatency";
+
+  // Weight of the newest sample in the moving average
+  private static final double SMOOTHING = 0.3;
+  // Searches faster than a frame run without a debounce
+  private static final double IMMEDIATE_BELOW_MS = 16;
+  private static final double DEBOUNCE_PER_LATENCY = 3;
+  private static final long MAX_DEBOUNCE_MS = 1100;
+
+  private static final int BUCKETS = 24;
+  private static final double[] averageMs = new double[BUCKETS];
+  private static final double[] worstMs = new double[BUCKETS];
+  private static final long[] samples = new long[BUCKETS];
+
+  private SearchLatency() {}
+
+  private static int bucket(int textLength) {
+    return Math.min(BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(textLength >> 10));
+  }
+
+  /** Records how long a search took, from submitting it to its result being ready. */
+  public static synchronized void record(int textLength, long nanos) {
+    int bucket = bucket(textLength);
+    double ms = nanos / 1e6;
+    averageMs[bucket] =
+        samples[bucket] == 0 ? ms : SMOOTHING * ms + (1 - SMOOTHING) * averageMs[bucket];
+    worstMs[bucket] = Math.max(worstMs[bucket], ms);
+    samples[bucket]++;
+  }
+
+  /** Debounce for a report of this size. 0 until a search of that size has proven slow. */
+  public static synchronized long getDebounceMillis(int textLength) {
+    double average = averageMs[bucket(textLength)];
+    if (average < IMMEDIATE_BELOW_MS) return 0;
+    return Math.min(MAX_DEBOUNCE_MS, Math.round(average * DEBOUNCE_PER_LATENCY));
+  }
+
+  /** One line per measured size bucket: samples, average and worst latency and the debounce. */
+  public static synchronized String getMetrics() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < BUCKETS; i++) {
+      if (samples[i] == 0) continue;
+      int sizeKb = i == 0 ? 0 : 1 << (i - 1);
+      sb.append(
+              String.format(
+                  Locale.US,
+                  ">=%dKB: searches=%d avg=%.2fms max=%.2fms debounce=%dms",
+                  sizeKb,
+                  samples[i],
+                  averageMs[i],
+                  worstMs[i],
+                  getDebounceMillis(sizeKb << 10)))
+          .append("\n");
+    }
+    return sb.toString();
+  }
+
+  public static void logMetrics() {
+    Log.d(TAG, getMetrics());
+  }
+}
@@ -0,0 +1,248 @@
+package com.shamim.camerainfo.util;
+
+import android.os.Process;
+import android.util.Log;
+import com.shamim.camerainfo.activity.*;
+import com.shamim.camerainfo.c2api_key.*;
+import com.shamim.camerainfo.exception_catcher.*;
+import com.shamim.camerainfo.preference.*;
+import com.shamim.camerainfo.recycle_view.*;
+import com.shamim.camerainfo.update_checker.*;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App-wide thread pools, one per priority lane. Every lane has a fixed upper thread count, runs
+ * its threads at the lane's OS priority and keeps queue-depth and latency counters.
+ */
+public final class TaskScheduler {
+
+  private static final String TAG = "TaskScheduler";
+  private static final long KEEP_ALIVE_SECONDS = 10;
+
+  public enum Lane {
+    /** Report generation and the publishing of its sections. */
+    RENDER("render", 2, Process.THREAD_PRIORITY_FOREGROUND),
+    /**
+     * Text layout of rows bound while scrolling. A lane of its own, so a fling that queues many
+     * rows cannot hold up generation on RENDER, nor generation hold up the rows on screen.
+     */
+    LAYOUT("layout", 2, Process.THREAD_PRIORITY_FOREGROUND),
+    /** Search-as-you-type. Stale queries are cancelled rather than queued. */
+    SEARCH("search", 2, Process.THREAD_PRIORITY_DEFAULT),
+    /**
+     * Prewarming, exports and logcat capture. The third thread lets an export of all modes render
+     * them side by side.
+     */
+    BACKGROUND("background", 3, Process.THREAD_PRIORITY_BACKGROUND);
+
+    final String threadName;
+    final int maxThreads;
+    final int priority;
+
+    Lane(String threadName, int maxThreads, int priority) {
+      this.threadName = threadName;
+      this.maxThreads = maxThreads;
+      this.priority = priority;
+    }
+  }
+
+  private static final Map<Lane, LaneExecutor> lanes = new EnumMap<>(Lane.class);
+
+  private TaskScheduler() {}
+
+  private static synchronized LaneExecutor lane(Lane lane) {
+    LaneExecutor executor = lanes.get(lane);
+    if (executor == null) {
+      executor = new LaneExecutor(lane);
+      lanes.put(lane, executor);
+    }
+    return executor;
+  }
+
+  public static Future<?> submit(Lane lane, Runnable task) {
+    LaneExecutor executor = lane(lane);
+    return executor.submit(new TimedTask(executor, task));
+  }
+
+  /** Executor view of a lane, for APIs that take an {@link Executor}. */
+  public static Executor executor(Lane lane) {
+    return task -> submit(lane, task);
+  }
+
+  /**
+   * Executor that runs its tasks one at a time, in submission order, on a lane. Use it when
+   * results must reach the UI in order.
+   */
+  public static Executor serial(Lane lane) {
+    return new SerialExecutor(lane);
+  }
+
+  /** Cancels a task and drops it from its lane's queue if it has not started yet. */
+  public static void cancel(Future<?> future) {
+    if (future == null) return;
+    future.cancel(true);
+    synchronized (TaskScheduler.class) {
+      for (LaneExecutor executor : lanes.values()) {
+        executor.purge();
+      }
+    }
+  }
+
+  /** Drops every task of a lane that has not started yet. Running tasks are left alone. */
+  public static void cancelPending(Lane lane) {
+    lane(lane).getQueue().clear();
+  }
+
+  /** One line per lane: threads, queue depth, completed tasks and average and worst latency. */
+  public static synchronized String getMetrics() {
+    StringBuilder sb = new StringBuilder();
+    for (LaneExecutor executor : lanes.values()) {
+      sb.append(executor.describe()).append("\n");
+    }
+    return sb.toString();
+  }
+
+  public static void logMetrics() {
+    Log.d(TAG, getMetrics());
+  }
+
+  private static final class LaneExecutor extends ThreadPoolExecutor {
+    private final Lane lane;
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    LaneExecutor(Lane lane) {
+      // core == max with core timeout lets the lane actually grow to maxThreads
+      super(
+          lane.maxThreads,
+          lane.maxThreads,
+          KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          new LaneThreadFactory(lane));
+      allowCoreThreadTimeOut(true);
+      this.lane = lane;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      super.execute(command);
+      int depth = getQueue().size();
+      maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    void record(long waitNanos, long runNanos) {
+      finished.incrementAndGet();
+      totalWaitNanos.addAndGet(waitNanos);
+      totalRunNanos.addAndGet(runNanos);
+      maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+      maxRunNanos.accumulateAndGet(runNanos, Math::max);
+    }
+
+    String describe() {
+      long count = Math.max(1, finished.get());
+      return String.format(
+          Locale.US,
+          "%s: threads=%d/%d active=%d queue=%d (max %d) done=%d"
+              + " wait avg=%.2fms max=%.2fms run avg=%.2fms max=%.2fms",
+          lane.threadName,
+          getPoolSize(),
+          lane.maxThreads,
+          getActiveCount(),
+          getQueue().size(),
+          maxQueueDepth.get(),
+          finished.get(),
+          totalWaitNanos.get() / count / 1e6,
+          maxWaitNanos.get() / 1e6,
+          totalRunNanos.get() / count / 1e6,
+          maxRunNanos.get() / 1e6);
+    }
+  }
+
+  private static final class SerialExecutor implements Executor {
+    private final Lane lane;
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+    private Runnable active;
+
+    SerialExecutor(Lane lane) {
+      this.lane = lane;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+      pending.offer(
+          () -> {
+            try {
+              task.run();
+            } finally {
+              scheduleNext();
+            }
+          });
+      if (active == null) {
+        scheduleNext();
+      }
+    }
+
+    private synchronized void scheduleNext() {
+      active = pending.poll();
+      if (active != null) {
+        submit(lane, active);
+      }
+    }
+  }
+
+  private static final class TimedTask implements Runnable {
+    private final LaneExecutor executor;
+    private final Runnable task;
+    private final long enqueuedAt = System.nanoTime();
+
+    TimedTask(LaneExecutor executor, Runnable task) {
+      this.executor = executor;
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      long startedAt = System.nanoTime();
+      try {
+        task.run();
+      } finally {
+        executor.record(startedAt - enqueuedAt, System.nanoTime() - startedAt);
+      }
+    }
+  }
+
+  private static final class LaneThreadFactory implements ThreadFactory {
+    private final Lane lane;
+    private final AtomicInteger count = new AtomicInteger();
+
+    LaneThreadFactory(Lane lane) {
+      this.lane = lane;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Runnable prioritized =
+          () -> {
+            Process.setThreadPriority(lane.priority);
+            runnable.run();
+          };
+      return new Thread(prioritized, "ci-" + lane.threadName + "-" + count.incrementAndGet());
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.shamim.camerainfo.report;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ReportQueryTest {
+
+  @Test
+  public void reportTextIsPlain() {
+    assertNull(ReportQuery.parse("Facing: BACK"));
+    assertNull(ReportQuery.parse("Type: WIDE"));
+    assertNull(ReportQuery.parse("value="));
+    assertNull(ReportQuery.parse("pixel array"));
+  }
+
+  @Test
+  public void emptyOperandIsPlain() {
+    assertNull(ReportQuery.parse("facing:"));
+    assertNull(ReportQuery.parse("camera:"));
+    assertNull(ReportQuery.parse("type:"));
+    assertNull(ReportQuery.parse("key:"));
+    assertNull(ReportQuery.parse("value:"));
+    assertNull(ReportQuery.parse("key:pixel facing:"));
+  }
+
+  @Test
+  public void badComparisonIsPlain() {
+    assertNull(ReportQuery.parse("value>"));
+    assertNull(ReportQuery.parse("value>=abc"));
+    assertNull(ReportQuery.parse("values"));
+  }
+
+  @Test
+  public void structuredTermsParse() {
+    assertNotNull(ReportQuery.parse("facing:back"));
+    assertNotNull(ReportQuery.parse("key:pixel value>1.0"));
+    assertNotNull(ReportQuery.parse("camera:0 type:tele"));
+    assertNotNull(ReportQuery.parse("value:yuv"));
+  }
+
+  @Test
+  public void facingSelectsCameraFields() {
+    ReportBuilder report = new ReportBuilder();
+    report.field("Model", "Pixel");
+    report.endSection("Device");
+    report.field("Facing", "BACK");
+    report.field("Zoom", "1.00x");
+    report.endSection("Camera 0");
+    report.field("Facing", "FRONT");
+    report.field("Zoom", "1.00x");
+    report.endSection("Camera 1");
+    ReportFieldIndex index = ReportFieldIndex.build(report.toDocument(0));
+
+    assertArrayEquals(new int[] {2}, ReportQuery.parse("key:zoom facing:back").run(index));
+    assertArrayEquals(new int[] {2, 4}, ReportQuery.parse("value>0.5").run(index));
+  }
+}
@@ -0,0 +1,194 @@
+package com.shamim.camerainfo.fleet;
+
+import com.shamim.camerainfo.snapshot.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates a synthetic corpus of reports, half binary snapshots and half text reports, then times
+ * building the index on one thread and on all cores, and a few queries. Arguments: the number of
+ * reports (10000 by default).
+ */
+public final class FleetBenchmark {
+
+  private static final String[] FORMATS = {
+    "JPEG", "YUV_420_888", "PRIVATE", "RAW_SENSOR", "RAW10", "RAW12", "HEIC", "DEPTH16"
+  };
+  private static final int[][] PIXEL_ARRAYS = {
+    {4000, 3000}, {4080, 3072}, {8160, 6144}, {9248, 6944}, {3264, 2448}, {2592, 1944}
+  };
+  private static final int KEYS_PER_CAMERA = 180;
+
+  private FleetBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    int reports = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    Path dir = Files.createTempDirectory("fleet-benchmark");
+    try {
+      long start = System.nanoTime();
+      long bytes = generate(dir, reports, new Random(42));
+      System.out.printf(
+          Locale.ROOT,
+          "Generated %d reports, %d MB in %d ms%n",
+          reports,
+          bytes >> 20,
+          millisSince(start));
+
+      List<Path> files = FleetCli.findReports(List.of(dir.toString()));
+      int cores = Runtime.getRuntime().availableProcessors();
+      // The first build warms up the JIT and the file cache
+      FleetIndex.build(files, cores);
+      time("Index, 1 thread", () -> FleetIndex.build(files, 1));
+      FleetIndex index =
+          time("Index, " + cores + " thread(s)", () -> FleetIndex.build(files, cores));
+      System.out.printf(
+          Locale.ROOT,
+          "%d rows, %d keys, %d values, %d errors%n",
+          index.getRowCount(),
+          index.keys.size(),
+          index.values.size(),
+          index.errors.size());
+
+      QueryResult sizes =
+          time(
+              "distribution SENSOR_INFO_PIXEL_ARRAY_SIZE",
+              () -> FleetQuery.distribution(index, "SENSOR_INFO_PIXEL_ARRAY_SIZE"));
+      System.out.println("  " + sizes.rows.size() + " values");
+      QueryResult raw10 =
+          time("lacking-format RAW10", () -> FleetQuery.lackingFormat(index, "RAW10"));
+      System.out.println("  " + raw10.rows.size() + " devices");
+      QueryResult keys = time("keys", () -> FleetQuery.keys(index));
+      System.out.println("  " + keys.rows.size() + " keys");
+
+      Path reference = dir.resolve("reference.cird");
+      time(
+          "reference, " + cores + " thread(s)",
+          () -> ReferenceBuilder.build(files, cores, reference, new ArrayList<>()));
+      System.out.println("  " + (Files.size(reference) >> 10) + " KB");
+      benchmarkReference(reference);
+    } finally {
+      try (Stream<Path> walk = Files.walk(dir)) {
+        walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  /** Lookups as the app runs them, on a freshly mapped database. */
+  private static void benchmarkReference(Path file) throws Exception {
+    ReferenceDatabase database = time("open", () -> ReferenceDatabase.open(file.toFile()));
+    ReferenceDatabase.Device device = database.getDevice(database.getDeviceCount() / 2);
+    int[] models = time("find model", () -> database.findModel(device.model));
+    System.out.println("  " + models.length + " devices");
+    time("find fingerprint", () -> database.findFingerprint(device.fingerprint));
+    for (int run = 0; run < 3; run++) {
+      ReferenceDatabase.Match[] nearest =
+          time("nearest 10, run " + (run + 1), () -> database.nearest(device.layout, 10));
+      if (run == 2) System.out.println("  closest distance " + nearest[0].distance);
+    }
+  }
+
+  private interface Task<T> {
+    T run() throws Exception;
+  }
+
+  private static <T> T time(String label, Task<T> task) throws Exception {
+    long start = System.nanoTime();
+    T result = task.run();
+    System.out.printf(Locale.ROOT, "%-45s %6d ms%n", label, millisSince(start));
+    return result;
+  }
+
+  private static long millisSince(long start) {
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+
+  /** Writes the corpus and returns its size in bytes. */
+  private static long generate(Path dir, int reports, Random random) throws IOException {
+    long bytes = 0;
+    for (int r = 0; r < reports; r++) {
+      Snapshot snapshot = randomSnapshot(r, random);
+      Path file;
+      if (r % 2 == 0) {
+        file = dir.resolve(String.format(Locale.ROOT, "device-%05d.cisnap", r));
+        try (OutputStream out = Files.newOutputStream(file)) {
+          SnapshotWriter.write(snapshot, out);
+        }
+      } else {
+        file = dir.resolve(String.format(Locale.ROOT, "device-%05d.txt", r));
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+          writeText(snapshot, out);
+        }
+      }
+      bytes += Files.size(file);
+    }
+    return bytes;
+  }
+
+  private static Snapshot randomSnapshot(int report, Random random) {
+    Snapshot snapshot = new Snapshot();
+    int model = random.nextInt(400);
+    snapshot.device.put("build.brand", "brand" + model % 20);
+    snapshot.device.put("build.model", "model-" + model);
+    snapshot.device.put("build.fingerprint", "brand/model-" + model + "/" + report + ":user");
+    snapshot.device.put("build.version.sdk", 28 + random.nextInt(8));
+
+    int cameras = 2 + random.nextInt(5);
+    for (int c = 0; c < cameras; c++) {
+      Snapshot.Camera camera = new Snapshot.Camera(String.valueOf(c));
+      camera.values.put(
+          "android.sensor.info.pixelArraySize", PIXEL_ARRAYS[random.nextInt(PIXEL_ARRAYS.length)]);
+      camera.values.put("android.lens.facing", c == 1 ? 0 : 1);
+      camera.values.put("android.info.supportedHardwareLevel", random.nextInt(4));
+      camera.values.put(
+          "android.lens.info.availableFocalLengths", new float[] {2f + random.nextInt(60) / 10f});
+      for (int k = 0; k < KEYS_PER_CAMERA; k++) {
+        camera.values.put("vendor.synthetic.key" + k, random.nextInt(k % 10 == 0 ? 1000 : 4));
+      }
+      List<String> formats = new ArrayList<>();
+      for (String format : FORMATS) {
+        if (format.equals("JPEG") || random.nextInt(3) > 0) formats.add(format);
+      }
+      for (String format : formats) {
+        camera.values.put(
+            FleetIndex.outputSizesKey(format), new int[] {4000, 3000, 1920, 1080, 640, 480});
+      }
+      snapshot.cameras.add(camera);
+    }
+    return snapshot;
+  }
+
+  /** The snapshot in the layout of the text reports. */
+  private static void writeText(Snapshot snapshot, Writer out) throws IOException {
+    for (Map.Entry<String, Object> entry : snapshot.device.entrySet()) {
+      out.write(entry.getKey() + " = " + FleetIndex.format(entry.getValue()) + "\n");
+    }
+    out.write("\n=================================\n\n");
+    for (Snapshot.Camera camera : snapshot.cameras) {
+      out.write("CameraID = [" + camera.id + "] Physical\n");
+      List<String> formats = new ArrayList<>();
+      for (Map.Entry<String, Object> entry : camera.values.entrySet()) {
+        String key = entry.getKey();
+        if (key.startsWith(Snapshot.STREAM_PREFIX)) {
+          formats.add(
+              key.substring(
+                  Snapshot.STREAM_PREFIX.length(), key.length() - Snapshot.OUTPUT_SIZES.length()));
+        } else {
+          out.write(key + " = " + FleetIndex.format(entry.getValue()) + "\n");
+        }
+      }
+      out.write(FleetIndex.OUTPUT_FORMATS_KEY + ": " + formats + "\n");
+      out.write("\n=================================\n\n");
+    }
+  }
+}
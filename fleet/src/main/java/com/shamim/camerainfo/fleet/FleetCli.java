@@ -0,0 +1,181 @@
+package com.shamim.camerainfo.fleet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point: indexes exported reports (binary snapshots, text reports and zip
+ * bundles) and runs one aggregate query over them. Progress goes to stderr, results to stdout or
+ * the --out file.
+ */
+public final class FleetCli {
+
+  private static final String USAGE =
+      "Usage: fleet [options] <query> <path>...\n"
+          + "\n"
+          + "Queries:\n"
+          + "  keys                      every key with its row and device counts\n"
+          + "  distribution <key>        values of a key, most common first\n"
+          + "  lacking <key>             devices without the key\n"
+          + "  lacking-format <format>   devices without a camera that outputs the format\n"
+          + "  reference <file>          writes the reference database of camera layouts for\n"
+          + "                            the app, by model and fingerprint\n"
+          + "\n"
+          + "Paths are report files or directories, searched for .cisnap, .txt and .zip files.\n"
+          + "Keys match without case, punctuation or the android prefix, so\n"
+          + "SENSOR_INFO_PIXEL_ARRAY_SIZE finds android.sensor.info.pixelArraySize.\n"
+          + "\n"
+          + "Options:\n"
+          + "  --format csv|json   output format, csv by default\n"
+          + "  --out <file>        write the result to a file instead of stdout\n"
+          + "  --threads <n>       parser threads, all cores by default\n";
+
+  private FleetCli() {}
+
+  public static void main(String[] args) {
+    try {
+      System.exit(run(args, System.err));
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.print(USAGE);
+      System.exit(2);
+    } catch (Exception e) {
+      System.err.println("fleet: " + e);
+      System.exit(1);
+    }
+  }
+
+  static int run(String[] args, PrintStream log) throws Exception {
+    String format = "csv";
+    String out = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<String> operands = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--format":
+          format = optionValue(args, ++i).toLowerCase(Locale.ROOT);
+          if (!format.equals("csv") && !format.equals("json")) {
+            throw new IllegalArgumentException("Unknown format " + format);
+          }
+          break;
+        case "--out":
+          out = optionValue(args, ++i);
+          break;
+        case "--threads":
+          threads = Math.max(1, Integer.parseInt(optionValue(args, ++i)));
+          break;
+        case "-h":
+        case "--help":
+          log.print(USAGE);
+          return 0;
+        default:
+          operands.add(args[i]);
+          break;
+      }
+    }
+    if (operands.isEmpty()) throw new IllegalArgumentException("No query");
+
+    String query = operands.get(0);
+    String argument = null;
+    int firstPath = 1;
+    if (!query.equals("keys")) {
+      if (operands.size() < 2) throw new IllegalArgumentException(query + " needs an argument");
+      argument = operands.get(1);
+      firstPath = 2;
+    }
+    List<Path> files = findReports(operands.subList(firstPath, operands.size()));
+    if (files.isEmpty()) throw new IllegalArgumentException("No reports found");
+
+    long start = System.nanoTime();
+    if (query.equals("reference")) {
+      List<String> errors = new ArrayList<>();
+      int devices = ReferenceBuilder.build(files, threads, Paths.get(argument), errors);
+      log.printf(
+          Locale.ROOT,
+          "Wrote %d devices to %s in %d ms%n",
+          devices,
+          argument,
+          (System.nanoTime() - start) / 1_000_000);
+      for (String error : errors) log.println("Skipped " + error);
+      return 0;
+    }
+    FleetIndex index = FleetIndex.build(files, threads);
+    log.printf(
+        Locale.ROOT,
+        "Indexed %d reports, %d cameras, %d keys, %d values in %d ms, %d thread(s)%n",
+        index.devices.size(),
+        index.getCameraCount(),
+        index.keys.size(),
+        index.values.size(),
+        (System.nanoTime() - start) / 1_000_000,
+        threads);
+    for (String error : index.errors) log.println("Skipped " + error);
+
+    QueryResult result = query(index, query, argument);
+    try (Writer writer =
+        out == null
+            ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+            : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+      if (format.equals("json")) {
+        result.writeJson(writer);
+      } else {
+        result.writeCsv(writer);
+      }
+    }
+    return 0;
+  }
+
+  static QueryResult query(FleetIndex index, String query, String argument) {
+    switch (query) {
+      case "keys":
+        return FleetQuery.keys(index);
+      case "distribution":
+        return FleetQuery.distribution(index, argument);
+      case "lacking":
+        return FleetQuery.lacking(index, argument);
+      case "lacking-format":
+        return FleetQuery.lackingFormat(index, argument);
+      default:
+        throw new IllegalArgumentException("Unknown query " + query);
+    }
+  }
+
+  private static String optionValue(String[] args, int i) {
+    if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + " needs a value");
+    return args[i];
+  }
+
+  /** The report files among paths, directories searched recursively, in a stable order. */
+  static List<Path> findReports(List<String> paths) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (String name : paths) {
+      Path path = Paths.get(name);
+      if (!Files.isDirectory(path)) {
+        files.add(path);
+        continue;
+      }
+      try (Stream<Path> walk = Files.walk(path)) {
+        walk.filter(file -> Files.isRegularFile(file) && isReport(file))
+            .sorted()
+            .forEach(files::add);
+      }
+    }
+    return files;
+  }
+
+  private static boolean isReport(Path file) {
+    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    return name.endsWith(".cisnap") || name.endsWith(".txt") || name.endsWith(".zip");
+  }
+}
@@ -0,0 +1,224 @@
+package com.shamim.camerainfo.fleet;
+
+import com.shamim.camerainfo.snapshot.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Columnar index of device x camera x key. Every report adds one row for its device section and
+ * one per camera; every key is a column of (row, value) pairs, with values interned in one
+ * dictionary. Rows are numbered in report order, so the rows of a column are ascending and the
+ * rows of a device are contiguous, which lets queries count devices in a single pass.
+ *
+ * <p>{@link #build} parses the reports on all cores into one partial index per chunk and then
+ * appends the partials in order, remapping their dictionary ids.
+ */
+final class FleetIndex {
+
+  /** Camera of the rows that hold device values. */
+  static final String DEVICE_ROW = "";
+
+  static final String OUTPUT_FORMATS_KEY = "Output formats";
+
+  // Chunks per thread, so a few slow files do not leave the other threads idle
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** A growable int array. */
+  static final class Ints {
+    int[] data = new int[16];
+    int size;
+
+    void add(int value) {
+      if (size == data.length) data = Arrays.copyOf(data, size * 2);
+      data[size++] = value;
+    }
+  }
+
+  /** The values of one key, as parallel row and value ids. */
+  static final class Column {
+    final Ints rows = new Ints();
+    final Ints values = new Ints();
+  }
+
+  final List<String> devices = new ArrayList<>();
+  final List<String> errors = new ArrayList<>();
+
+  final Ints rowDevice = new Ints();
+  final List<String> rowCamera = new ArrayList<>();
+
+  final List<String> keys = new ArrayList<>();
+  final List<Column> columns = new ArrayList<>();
+  private final Map<String, Integer> keyIds = new HashMap<>();
+
+  final List<String> values = new ArrayList<>();
+  private final Map<String, Integer> valueIds = new HashMap<>();
+
+  private Map<String, Integer> normalizedKeys;
+
+  /** Parses and indexes files on threads threads. Files that cannot be read are kept in errors. */
+  static FleetIndex build(List<Path> files, int threads)
+      throws InterruptedException, ExecutionException {
+    int chunks = Math.max(1, Math.min(files.size(), threads * CHUNKS_PER_THREAD));
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<FleetIndex>> parts = new ArrayList<>(chunks);
+      for (int c = 0; c < chunks; c++) {
+        List<Path> chunk =
+            files.subList(files.size() * c / chunks, files.size() * (c + 1) / chunks);
+        parts.add(pool.submit(() -> indexChunk(chunk)));
+      }
+      FleetIndex index = new FleetIndex();
+      for (Future<FleetIndex> part : parts) index.append(part.get());
+      return index;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static FleetIndex indexChunk(List<Path> files) {
+    FleetIndex index = new FleetIndex();
+    for (Path file : files) {
+      try {
+        index.add(file.toString(), ReportParser.parse(file));
+      } catch (IOException | RuntimeException e) {
+        index.errors.add(file + ": " + e);
+      }
+    }
+    return index;
+  }
+
+  int getRowCount() {
+    return rowDevice.size;
+  }
+
+  int getCameraCount() {
+    int cameras = 0;
+    for (String camera : rowCamera) if (!camera.equals(DEVICE_ROW)) cameras++;
+    return cameras;
+  }
+
+  void add(String device, Snapshot snapshot) {
+    int deviceId = devices.size();
+    devices.add(device);
+    addRow(deviceId, DEVICE_ROW, snapshot.device);
+    for (Snapshot.Camera camera : snapshot.cameras) addRow(deviceId, camera.id, camera.values);
+  }
+
+  private void addRow(int deviceId, String camera, Map<String, Object> entries) {
+    int row = rowDevice.size;
+    rowDevice.add(deviceId);
+    rowCamera.add(camera);
+    for (Map.Entry<String, Object> entry : entries.entrySet()) {
+      Column column = columns.get(keyId(entry.getKey()));
+      column.rows.add(row);
+      column.values.add(valueId(format(entry.getValue())));
+    }
+  }
+
+  /** Appends the rows of part after the rows of this index. */
+  private void append(FleetIndex part) {
+    int deviceOffset = devices.size();
+    int rowOffset = rowDevice.size;
+    devices.addAll(part.devices);
+    errors.addAll(part.errors);
+    for (int r = 0; r < part.rowDevice.size; r++) {
+      rowDevice.add(part.rowDevice.data[r] + deviceOffset);
+    }
+    rowCamera.addAll(part.rowCamera);
+
+    int[] valueMap = new int[part.values.size()];
+    for (int v = 0; v < valueMap.length; v++) valueMap[v] = valueId(part.values.get(v));
+    for (int k = 0; k < part.keys.size(); k++) {
+      Column source = part.columns.get(k);
+      Column target = columns.get(keyId(part.keys.get(k)));
+      for (int i = 0; i < source.rows.size; i++) {
+        target.rows.add(source.rows.data[i] + rowOffset);
+        target.values.add(valueMap[source.values.data[i]]);
+      }
+    }
+  }
+
+  private int keyId(String key) {
+    Integer id = keyIds.get(key);
+    if (id == null) {
+      id = keys.size();
+      keyIds.put(key, id);
+      keys.add(key);
+      columns.add(new Column());
+      normalizedKeys = null;
+    }
+    return id;
+  }
+
+  private int valueId(String value) {
+    Integer id = valueIds.get(value);
+    if (id == null) {
+      id = values.size();
+      valueIds.put(value, id);
+      values.add(value);
+    }
+    return id;
+  }
+
+  /** The column of key, or null if no report has it. */
+  Column getColumn(String key) {
+    Integer id = keyIds.get(key);
+    return id == null ? null : columns.get(id);
+  }
+
+  /**
+   * Finds the key a user means: the exact key, otherwise the key with the most values that is the
+   * same after {@link #normalize}, so SENSOR_INFO_PIXEL_ARRAY_SIZE finds
+   * android.sensor.info.pixelArraySize. Returns null if there is none.
+   */
+  String resolveKey(String key) {
+    if (keyIds.containsKey(key)) return key;
+    if (normalizedKeys == null) {
+      Map<String, Integer> map = new HashMap<>();
+      for (int k = 0; k < keys.size(); k++) {
+        Integer best = map.get(normalize(keys.get(k)));
+        if (best == null || columns.get(k).rows.size > columns.get(best).rows.size) {
+          map.put(normalize(keys.get(k)), k);
+        }
+      }
+      normalizedKeys = map;
+    }
+    Integer id = normalizedKeys.get(normalize(key));
+    return id == null ? null : keys.get(id);
+  }
+
+  /** Lower case letters and digits only, without a leading "android". */
+  static String normalize(String key) {
+    StringBuilder sb = new StringBuilder(key.length());
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (Character.isLetterOrDigit(c)) sb.append(Character.toLowerCase(c));
+    }
+    String normalized = sb.toString();
+    return normalized.startsWith("android") ? normalized.substring(7) : normalized;
+  }
+
+  /** Text of a value, the same for a typed snapshot value and its text report form. */
+  static String format(Object value) {
+    if (value instanceof int[]) return Arrays.toString((int[]) value);
+    if (value instanceof long[]) return Arrays.toString((long[]) value);
+    if (value instanceof float[]) return Arrays.toString((float[]) value);
+    if (value instanceof Object[]) return Arrays.toString((Object[]) value);
+    return String.valueOf(value);
+  }
+
+  /** Key of the output sizes of an image format in binary snapshots. */
+  static String outputSizesKey(String format) {
+    return Snapshot.STREAM_PREFIX + format.toUpperCase(Locale.ROOT) + Snapshot.OUTPUT_SIZES;
+  }
+}
@@ -0,0 +1,135 @@
+package com.shamim.camerainfo.fleet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/** Aggregate queries over a {@link FleetIndex}. Each one is a single pass over the columns. */
+final class FleetQuery {
+
+  private FleetQuery() {}
+
+  /** Every key with the number of cameras (or device sections) and devices that have it. */
+  static QueryResult keys(FleetIndex index) {
+    List<Integer> order = new ArrayList<>();
+    for (int k = 0; k < index.keys.size(); k++) order.add(k);
+    order.sort(Comparator.comparing(index.keys::get));
+    QueryResult result = new QueryResult("key", "rows", "devices");
+    for (int k : order) {
+      FleetIndex.Column column = index.columns.get(k);
+      result.add(index.keys.get(k), column.rows.size, countDevices(index, column));
+    }
+    return result;
+  }
+
+  /** The values of key, most common first, with how many rows and devices have each. */
+  static QueryResult distribution(FleetIndex index, String key) {
+    String resolved = requireKey(index, key);
+    FleetIndex.Column column = index.getColumn(resolved);
+    int[] rows = new int[index.values.size()];
+    int[] devices = new int[index.values.size()];
+    int[] lastDevice = new int[index.values.size()];
+    Arrays.fill(lastDevice, -1);
+    int distinct = 0;
+    for (int i = 0; i < column.rows.size; i++) {
+      int value = column.values.data[i];
+      int device = index.rowDevice.data[column.rows.data[i]];
+      if (rows[value]++ == 0) distinct++;
+      // Rows are ascending, so the rows of one device come one after another
+      if (lastDevice[value] != device) {
+        lastDevice[value] = device;
+        devices[value]++;
+      }
+    }
+
+    Integer[] order = new Integer[distinct];
+    int n = 0;
+    for (int v = 0; v < rows.length; v++) if (rows[v] > 0) order[n++] = v;
+    Arrays.sort(order, (a, b) -> rows[a] != rows[b] ? rows[b] - rows[a] : a - b);
+    QueryResult result = new QueryResult(resolved, "rows", "devices");
+    for (int v : order) result.add(index.values.get(v), rows[v], devices[v]);
+    return result;
+  }
+
+  /** Devices none of whose rows has key. */
+  static QueryResult lacking(FleetIndex index, String key) {
+    boolean[] has = new boolean[index.devices.size()];
+    markDevices(index, index.getColumn(requireKey(index, key)), has);
+    return devicesWithout(index, has);
+  }
+
+  /**
+   * Devices without a camera that outputs format, e.g. RAW10: from the stream configuration keys
+   * of binary snapshots, or the output format list of text reports.
+   */
+  static QueryResult lackingFormat(FleetIndex index, String format) {
+    boolean[] has = new boolean[index.devices.size()];
+    markDevices(index, index.getColumn(FleetIndex.outputSizesKey(format)), has);
+
+    FleetIndex.Column formats = index.getColumn(FleetIndex.OUTPUT_FORMATS_KEY);
+    if (formats != null) {
+      // 0 = not checked yet, 1 = listed, 2 = not listed; every value is scanned only once
+      byte[] listed = new byte[index.values.size()];
+      for (int i = 0; i < formats.rows.size; i++) {
+        int value = formats.values.data[i];
+        if (listed[value] == 0) {
+          listed[value] = listsFormat(index.values.get(value), format) ? (byte) 1 : (byte) 2;
+        }
+        if (listed[value] == 1) has[index.rowDevice.data[formats.rows.data[i]]] = true;
+      }
+    }
+    return devicesWithout(index, has);
+  }
+
+  /** Whether a list like "[RAW10, JPEG]" names format as a whole word. */
+  static boolean listsFormat(String list, String format) {
+    String upper = list.toUpperCase(Locale.ROOT);
+    String wanted = format.toUpperCase(Locale.ROOT);
+    for (int from = 0; (from = upper.indexOf(wanted, from)) >= 0; from++) {
+      int end = from + wanted.length();
+      if ((from == 0 || !isWordChar(upper.charAt(from - 1)))
+          && (end == upper.length() || !isWordChar(upper.charAt(end)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  private static String requireKey(FleetIndex index, String key) {
+    String resolved = index.resolveKey(key);
+    if (resolved == null) throw new IllegalArgumentException("No report has the key " + key);
+    return resolved;
+  }
+
+  private static int countDevices(FleetIndex index, FleetIndex.Column column) {
+    int devices = 0;
+    int last = -1;
+    for (int i = 0; i < column.rows.size; i++) {
+      int device = index.rowDevice.data[column.rows.data[i]];
+      if (device != last) {
+        devices++;
+        last = device;
+      }
+    }
+    return devices;
+  }
+
+  private static void markDevices(FleetIndex index, FleetIndex.Column column, boolean[] has) {
+    if (column == null) return;
+    for (int i = 0; i < column.rows.size; i++) {
+      has[index.rowDevice.data[column.rows.data[i]]] = true;
+    }
+  }
+
+  private static QueryResult devicesWithout(FleetIndex index, boolean[] has) {
+    QueryResult result = new QueryResult("device");
+    for (int d = 0; d < has.length; d++) if (!has[d]) result.add(index.devices.get(d));
+    return result;
+  }
+}
@@ -0,0 +1,64 @@
+package com.shamim.camerainfo.fleet;
+
+import com.shamim.camerainfo.snapshot.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A table of query results. Cells are strings or numbers. */
+final class QueryResult {
+
+  final String[] columns;
+  final List<Object[]> rows = new ArrayList<>();
+
+  QueryResult(String... columns) {
+    this.columns = columns;
+  }
+
+  void add(Object... row) {
+    rows.add(row);
+  }
+
+  /** Writes a header line and one line per row, quoting cells as in RFC 4180. */
+  void writeCsv(Writer out) throws IOException {
+    writeCsvLine(out, columns);
+    for (Object[] row : rows) writeCsvLine(out, row);
+    out.flush();
+  }
+
+  private static void writeCsvLine(Writer out, Object[] cells) throws IOException {
+    for (int i = 0; i < cells.length; i++) {
+      if (i > 0) out.write(',');
+      String cell = String.valueOf(cells[i]);
+      if (cell.indexOf(',') >= 0
+          || cell.indexOf('"') >= 0
+          || cell.indexOf('\n') >= 0
+          || cell.indexOf('\r') >= 0) {
+        cell = '"' + cell.replace("\"", "\"\"") + '"';
+      }
+      out.write(cell);
+    }
+    out.write("\r\n");
+  }
+
+  /** Writes an array with one object per row, named by the columns. */
+  void writeJson(Writer out) throws IOException {
+    JsonWriter json = new JsonWriter(out);
+    json.beginArray();
+    for (Object[] row : rows) {
+      json.beginObject();
+      for (int i = 0; i < columns.length; i++) {
+        json.name(columns[i]);
+        if (row[i] instanceof Number) {
+          json.value(((Number) row[i]).longValue());
+        } else {
+          json.value(String.valueOf(row[i]));
+        }
+      }
+      json.endObject();
+    }
+    json.endArray();
+    json.flush();
+  }
+}
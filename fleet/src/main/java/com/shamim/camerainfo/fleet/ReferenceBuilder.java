@@ -0,0 +1,124 @@
+package com.shamim.camerainfo.fleet;
+
+import com.shamim.camerainfo.snapshot.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a {@link ReferenceDatabase} for the app from exported reports: the model, fingerprint,
+ * SoC and {@link CameraLayout} of every report, parsed on all cores.
+ */
+final class ReferenceBuilder {
+
+  /** A report reduced to what the database stores. */
+  private static final class Device {
+    final String model;
+    final String fingerprint;
+    final String soc;
+    final CameraLayout layout;
+
+    Device(String model, String fingerprint, String soc, CameraLayout layout) {
+      this.model = model;
+      this.fingerprint = fingerprint;
+      this.soc = soc;
+      this.layout = layout;
+    }
+  }
+
+  private ReferenceBuilder() {}
+
+  /**
+   * Writes the database of files to out, replacing it only once complete. Files that cannot be
+   * read are added to errors. Returns the number of devices written.
+   */
+  static int build(List<Path> files, int threads, Path out, List<String> errors)
+      throws IOException, InterruptedException, ExecutionException {
+    int chunks = Math.max(1, Math.min(files.size(), threads * 4));
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ReferenceDatabaseWriter writer = new ReferenceDatabaseWriter();
+    try {
+      List<Future<List<Device>>> parts = new ArrayList<>(chunks);
+      for (int c = 0; c < chunks; c++) {
+        List<Path> chunk =
+            files.subList(files.size() * c / chunks, files.size() * (c + 1) / chunks);
+        parts.add(pool.submit(() -> readChunk(chunk, errors)));
+      }
+      // In file order, so for a repeated fingerprint the last file wins
+      for (Future<List<Device>> part : parts) {
+        for (Device device : part.get()) {
+          writer.add(device.model, device.fingerprint, device.soc, device.layout);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    Path partial = out.resolveSibling(out.getFileName() + ".part");
+    try (OutputStream stream = Files.newOutputStream(partial)) {
+      writer.write(stream);
+    }
+    Files.move(partial, out, StandardCopyOption.REPLACE_EXISTING);
+    return writer.size();
+  }
+
+  private static List<Device> readChunk(List<Path> files, List<String> errors) {
+    List<Device> devices = new ArrayList<>(files.size());
+    for (Path file : files) {
+      try {
+        devices.add(toDevice(ReportParser.parse(file)));
+      } catch (IOException | RuntimeException e) {
+        synchronized (errors) {
+          errors.add(file + ": " + e);
+        }
+      }
+    }
+    return devices;
+  }
+
+  /**
+   * Binary snapshots have build.* keys and stream configs. Text reports have "Device : brand model
+   * (device)", "Fingerprint" and an "Output formats" list, turned into the same shape here.
+   */
+  private static Device toDevice(Snapshot snapshot) {
+    Map<String, Object> device = snapshot.device;
+    String model = string(device.get("build.model"));
+    if (model.isEmpty()) model = modelOf(string(device.get("Device")));
+    String fingerprint = string(device.get("build.fingerprint"));
+    if (fingerprint.isEmpty()) fingerprint = string(device.get("Fingerprint"));
+    String soc = string(device.get("build.soc.model"));
+    if (soc.isEmpty()) soc = string(device.get("build.hardware"));
+
+    for (Snapshot.Camera camera : snapshot.cameras) {
+      Object formats = camera.values.get(FleetIndex.OUTPUT_FORMATS_KEY);
+      if (formats == null) continue;
+      for (String format : CameraLayout.FORMAT_NAMES) {
+        if (FleetQuery.listsFormat(formats.toString(), format)) {
+          camera.values.putIfAbsent(FleetIndex.outputSizesKey(format), new int[0]);
+        }
+      }
+    }
+    return new Device(model, fingerprint, soc, CameraLayout.of(snapshot));
+  }
+
+  /** "google Pixel 7 (panther)" to "Pixel 7". */
+  private static String modelOf(String device) {
+    int open = device.lastIndexOf(" (");
+    if (open >= 0) device = device.substring(0, open);
+    int space = device.indexOf(' ');
+    return space >= 0 ? device.substring(space + 1) : device;
+  }
+
+  private static String string(Object value) {
+    return value == null ? "" : value.toString().trim();
+  }
+}
@@ -0,0 +1,99 @@
+package com.shamim.camerainfo.fleet;
+
+import com.shamim.camerainfo.snapshot.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads an exported report into a {@link Snapshot}: binary snapshots with their typed values, text
+ * reports and zip bundles of text reports as string values per device and camera section.
+ */
+final class ReportParser {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String MANIFEST_ENTRY = "manifest.txt";
+  // Longer "keys" are lines of free text that happen to contain a separator
+  private static final int MAX_KEY_LENGTH = 160;
+
+  private ReportParser() {}
+
+  static Snapshot parse(Path file) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+      if (SnapshotReader.hasMagic(in)) return SnapshotReader.read(in).readAll();
+      Snapshot snapshot = new Snapshot();
+      if (hasZipMagic(in)) {
+        ZipInputStream zip = new ZipInputStream(in);
+        for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+          if (entry.isDirectory() || entry.getName().equals(MANIFEST_ENTRY)) continue;
+          parseText(new InputStreamReader(zip, StandardCharsets.UTF_8), snapshot);
+        }
+      } else {
+        parseText(new InputStreamReader(in, StandardCharsets.UTF_8), snapshot);
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Adds the fields of a text report. Fields go to the device until the first CameraID field, then
+   * to that camera until the next one. When a key repeats within a section, the first value wins.
+   */
+  static void parseText(Reader in, Snapshot snapshot) throws IOException {
+    BufferedReader lines = new BufferedReader(in, BUFFER_SIZE);
+    Map<String, Object> values = snapshot.device;
+    for (String line; (line = lines.readLine()) != null; ) {
+      int separator = separatorOf(line);
+      if (separator <= 0 || separator > MAX_KEY_LENGTH) continue;
+      String key = line.substring(0, separator).trim();
+      if (key.isEmpty()) continue;
+      String value = line.substring(separator + 1).trim();
+      if (key.equals("CameraID")) {
+        String id = cameraIdOf(value);
+        Snapshot.Camera camera = snapshot.getCamera(id);
+        if (camera == null) {
+          camera = new Snapshot.Camera(id);
+          snapshot.cameras.add(camera);
+        }
+        values = camera.values;
+      } else if (key.equals("CameraManager IDs List") || key.equals("All Camera IDs")) {
+        values = snapshot.device;
+        values.putIfAbsent(key, value);
+      } else {
+        values.putIfAbsent(key, value);
+      }
+    }
+  }
+
+  /** "[0] Logical ..." in the camera reports, just "0" in the camcorder matrix. */
+  private static String cameraIdOf(String value) {
+    int close = value.indexOf(']');
+    return value.startsWith("[") && close > 0 ? value.substring(1, close) : value;
+  }
+
+  private static int separatorOf(String line) {
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '=' || c == ':') return i;
+    }
+    return -1;
+  }
+
+  private static boolean hasZipMagic(InputStream in) throws IOException {
+    in.mark(4);
+    try {
+      return in.read() == 'P' && in.read() == 'K' && in.read() == 3 && in.read() == 4;
+    } finally {
+      in.reset();
+    }
+  }
+}